@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+import com.googlecode.eclipse.plugin.directorycpcontainer.ContainerDirFilter;
+import com.googlecode.eclipse.plugin.directorycpcontainer.ContainerOptions;
+import com.googlecode.eclipse.plugin.directorycpcontainer.DirectoryContainer;
+import com.googlecode.eclipse.plugin.directorycpcontainer.DirectoryContainerInitializer;
+
+/**
+ * Headless application measuring how DirectoryContainer initialization scales with the 
+ * size of the workspace.  It generates N Java projects, each with a DirectoryContainer 
+ * over a lib directory holding M archives, then for each run measures :
+ *   - the time spent in DirectoryContainerInitializer.initialize for all projects
+ *   - the wall-clock time until the classpath of every project is resolved
+ *   - the time ContainerDirFilter takes to filter the whole tree of every project
+ * 
+ * With -manifest, the container follows manifest Class-Path references : every archive 
+ * then references an archive of the lib/ext directory, which the container does not 
+ * list, and each of those references the next one, so the expansion is transitive.
+ * 
+ * Each run is written as one JSON object per line, so results can be collected and 
+ * compared from release to release.  Usage :
+ *   eclipse -nosplash -data &lt;empty workspace&gt; 
+ *     -application com.googlecode.eclipse.plugin.directorycpcontainer.benchmark.startup 
+ *     [-projects N] [-archives M] [-runs R] [-manifest] [-keep] [-output file]
+ * 
+ * @author Frederic Camblor
+ */
+public class StartupBenchmark implements IApplication {
+    
+    // prefix of the generated projects names
+    private final static String PROJECT_PREFIX = "dcc-benchmark-";
+    // project directory holding the generated archives
+    private final static String LIB_DIR = "lib";
+    // lib sub directory holding the archives only reachable through manifest Class-Path references
+    private final static String EXT_DIR = "ext";
+    // every n-th archive gets a -sources attachment
+    private final static int SOURCES_EVERY = 4;
+    // number of class entries per generated archive
+    private final static int CLASSES_PER_ARCHIVE = 20;
+    
+    private int _projectCount = 100;
+    private int _archiveCount = 50;
+    private int _runs = 3;
+    private boolean _manifestClassPath = false;
+    private boolean _keep = false;
+    private String _output = null;
+    
+    /**
+     * @see org.eclipse.equinox.app.IApplication#start(org.eclipse.equinox.app.IApplicationContext)
+     */
+    public Object start(IApplicationContext context) throws Exception {
+        parseArguments((String[])context.getArguments().get(IApplicationContext.APPLICATION_ARGS));
+        
+        PrintStream out = System.out;
+        if(_output != null) {
+            out = new PrintStream(new FileOutputStream(_output, true), true, "UTF-8");
+        }
+        try {
+            List<IJavaProject> projects = generateProjects();
+            for(int run = 1; run <= _runs; run++) {
+                out.println(measure(run, projects));
+            }
+            if(!_keep) {
+                deleteProjects(projects);
+            }
+        } finally {
+            if(out != System.out) {
+                out.close();
+            }
+        }
+        return IApplication.EXIT_OK;
+    }
+    
+    /**
+     * @see org.eclipse.equinox.app.IApplication#stop()
+     */
+    public void stop() {
+        // runs to completion
+    }
+    
+    private void parseArguments(String[] args) {
+        if(args == null) {
+            return;
+        }
+        for(int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if(arg.equals("-projects")) {
+                _projectCount = Integer.parseInt(args[++i]);
+            } else if(arg.equals("-archives")) {
+                _archiveCount = Integer.parseInt(args[++i]);
+            } else if(arg.equals("-runs")) {
+                _runs = Integer.parseInt(args[++i]);
+            } else if(arg.equals("-output")) {
+                _output = args[++i];
+            } else if(arg.equals("-manifest")) {
+                _manifestClassPath = true;
+            } else if(arg.equals("-keep")) {
+                _keep = true;
+            }
+        }
+    }
+    
+    /**
+     * Creates the benchmark projects, their archives and their .classpath files in a 
+     * single workspace operation
+     */
+    private List<IJavaProject> generateProjects() throws CoreException {
+        final List<IJavaProject> projects = new ArrayList<IJavaProject>(_projectCount);
+        IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        workspace.run(new IWorkspaceRunnable() {
+            public void run(IProgressMonitor monitor) throws CoreException {
+                for(int i = 0; i < _projectCount; i++) {
+                    projects.add(generateProject(i, monitor));
+                }
+            }
+        }, new NullProgressMonitor());
+        return projects;
+    }
+    
+    private IJavaProject generateProject(int index, IProgressMonitor monitor) throws CoreException {
+        IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(PROJECT_PREFIX + index);
+        if(!project.exists()) {
+            project.create(monitor);
+        }
+        project.open(monitor);
+        IProjectDescription description = project.getDescription();
+        description.setNatureIds(new String[] { JavaCore.NATURE_ID });
+        project.setDescription(description, monitor);
+        
+        File libDir = new File(project.getLocation().toFile(), LIB_DIR);
+        File extDir = new File(libDir, EXT_DIR);
+        libDir.mkdirs();
+        if(_manifestClassPath) {
+            extDir.mkdirs();
+        }
+        for(int i = 0; i < _archiveCount; i++) {
+            String name = "bench" + index + "-lib" + i + "-1.0";
+            String extName = "bench" + index + "-ext" + i + "-1.0.jar";
+            writeArchive(new File(libDir, name + ".jar"), "bench/p" + index + "/lib" + i, 
+                    _manifestClassPath ? EXT_DIR + "/" + extName : null);
+            if(i % SOURCES_EVERY == 0) {
+                writeArchive(new File(libDir, name + "-sources.jar"), "bench/p" + index + "/lib" + i, null);
+            }
+            if(_manifestClassPath) {
+                String nextExtName = "bench" + index + "-ext" + (i + 1) + "-1.0.jar";
+                writeArchive(new File(extDir, extName), "bench/p" + index + "/ext" + i, 
+                        i + 1 < _archiveCount ? nextExtName : null);
+            }
+        }
+        project.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+        
+        IJavaProject javaProject = JavaCore.create(project);
+        javaProject.setRawClasspath(new IClasspathEntry[] { 
+                JavaCore.newSourceEntry(project.getFullPath()), containerEntry() }, monitor);
+        return javaProject;
+    }
+    
+    /**
+     * @return the DirectoryContainer entry of the benchmark projects
+     */
+    private IClasspathEntry containerEntry() {
+        IClasspathAttribute[] attributes = new IClasspathAttribute[0];
+        if(_manifestClassPath) {
+            attributes = new IClasspathAttribute[] { 
+                    JavaCore.newClasspathAttribute(ContainerOptions.MANIFEST_CLASSPATH, Boolean.TRUE.toString()) };
+        }
+        return JavaCore.newContainerEntry(containerPath(), new IAccessRule[0], attributes, false);
+    }
+    
+    private static IPath containerPath() {
+        return DirectoryContainer.ID.append(LIB_DIR).append("jar");
+    }
+    
+    /**
+     * Writes a small archive with a manifest and a few empty class entries
+     * 
+     * @param classPath Class-Path header of the manifest, null for none
+     */
+    private static void writeArchive(File file, String packagePath, String classPath) throws CoreException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if(classPath != null) {
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+        }
+        try {
+            JarOutputStream jar = new JarOutputStream(new FileOutputStream(file), manifest);
+            try {
+                for(int i = 0; i < CLASSES_PER_ARCHIVE; i++) {
+                    jar.putNextEntry(new JarEntry(packagePath + "/C" + i + ".class"));
+                    jar.closeEntry();
+                }
+            } finally {
+                jar.close();
+            }
+        } catch(IOException e) {
+            throw new IllegalStateException("Unable to write " + file, e);
+        }
+    }
+    
+    /**
+     * Runs the three measured phases once over all the projects
+     * 
+     * @return the run results, as a JSON object
+     */
+    private String measure(int run, List<IJavaProject> projects) throws CoreException {
+        DirectoryContainerInitializer initializer = new DirectoryContainerInitializer();
+        IPath containerPath = containerPath();
+        
+        long start = System.nanoTime();
+        long maxInit = 0;
+        for(IJavaProject project: projects) {
+            long projectStart = System.nanoTime();
+            initializer.initialize(containerPath, project);
+            maxInit = Math.max(maxInit, System.nanoTime() - projectStart);
+        }
+        long initialized = System.nanoTime();
+        
+        int entries = 0;
+        for(IJavaProject project: projects) {
+            entries += project.getResolvedClasspath(true).length;
+        }
+        long resolved = System.nanoTime();
+        
+        ContainerDirFilter filter = new ContainerDirFilter();
+        // children and shown children counts
+        int[] counts = new int[2];
+        for(IJavaProject project: projects) {
+            filterTree(filter, project.getProject(), counts);
+        }
+        long filtered = System.nanoTime();
+        
+        StringBuilder json = new StringBuilder("{");
+        appendField(json, "benchmark", "\"startup\"");
+        appendField(json, "run", run);
+        appendField(json, "projects", projects.size());
+        appendField(json, "archivesPerProject", _archiveCount);
+        appendField(json, "manifestClassPath", String.valueOf(_manifestClassPath));
+        appendField(json, "initializeMs", millis(initialized - start));
+        appendField(json, "initializeMaxMs", millis(maxInit));
+        appendField(json, "resolveMs", millis(resolved - initialized));
+        appendField(json, "untilResolvedMs", millis(resolved - start));
+        appendField(json, "filterMs", millis(filtered - resolved));
+        appendField(json, "resolvedEntries", entries);
+        appendField(json, "filteredChildren", counts[0]);
+        appendField(json, "shownChildren", counts[1]);
+        json.setLength(json.length() - 1);
+        return json.append('}').toString();
+    }
+    
+    /**
+     * Filters the members of the container and of all its sub folders, as the package 
+     * explorer does when the tree is fully expanded
+     * 
+     * @param counts children and shown children counts, updated
+     */
+    private static void filterTree(ContainerDirFilter filter, IContainer container, int[] counts) throws CoreException {
+        IResource[] members = container.members();
+        counts[0] += members.length;
+        counts[1] += filter.filter(null, container, members).length;
+        for(IResource member: members) {
+            if(member instanceof IContainer) {
+                filterTree(filter, (IContainer)member, counts);
+            }
+        }
+    }
+    
+    private static void appendField(StringBuilder json, String name, Object value) {
+        json.append('"').append(name).append("\":").append(value).append(',');
+    }
+    
+    private static String millis(long nanos) {
+        return String.valueOf(nanos / 1000000.0);
+    }
+    
+    private void deleteProjects(final List<IJavaProject> projects) throws CoreException {
+        ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+            public void run(IProgressMonitor monitor) throws CoreException {
+                for(IJavaProject project: projects) {
+                    project.getProject().delete(true, monitor);
+                }
+            }
+        }, new NullProgressMonitor());
+    }
+}
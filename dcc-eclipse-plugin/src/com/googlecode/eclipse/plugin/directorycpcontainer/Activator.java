@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+import com.googlecode.eclipse.plugin.directorycpcontainer.api.IContainerIndex;
+
+/**
+ * Plug-in activator : registers the container index service and keeps the index clear 
+ * of closed and deleted projects, and of containers removed from a project classpath.
+ * 
+ * @author Frederic Camblor
+ */
+public class Activator implements BundleActivator {
+    
+    private ServiceRegistration _indexRegistration;
+    
+    /**
+     * Removes the containers of projects being closed or deleted from the index
+     */
+    private IResourceChangeListener _projectListener = new IResourceChangeListener() {
+        public void resourceChanged(IResourceChangeEvent event) {
+            IResource resource = event.getResource();
+            if(resource != null && resource.getType() == IResource.PROJECT) {
+                DirectoryContainerIndex.getDefault().removeProject(resource.getName());
+            }
+        }
+    };
+    
+    /**
+     * Removes the containers no longer on the raw classpath of their project from the index
+     */
+    private IElementChangedListener _classpathListener = new IElementChangedListener() {
+        public void elementChanged(ElementChangedEvent event) {
+            for(IJavaElementDelta delta: event.getDelta().getAffectedChildren()) {
+                if(delta.getElement().getElementType() == IJavaElement.JAVA_PROJECT 
+                        && (delta.getFlags() & IJavaElementDelta.F_CLASSPATH_CHANGED) != 0) {
+                    retainClasspathContainers((IJavaProject)delta.getElement());
+                }
+            }
+        }
+    };
+    
+    /**
+     * Drops the index entries of the project containers that are not on its raw classpath
+     */
+    private static void retainClasspathContainers(IJavaProject project) {
+        Set<IPath> containerPaths = new HashSet<IPath>();
+        try {
+            for(IClasspathEntry entry: project.getRawClasspath()) {
+                if(entry.getEntryKind() == IClasspathEntry.CPE_CONTAINER) {
+                    containerPaths.add(entry.getPath());
+                }
+            }
+        } catch(JavaModelException e) {
+            Logger.log(Logger.ERROR, e);
+            return;
+        }
+        DirectoryContainerIndex.getDefault().retainContainers(project.getElementName(), containerPaths);
+    }
+    
+    /**
+     * @see org.osgi.framework.BundleActivator#start(org.osgi.framework.BundleContext)
+     */
+    public void start(BundleContext context) throws Exception {
+        _indexRegistration = context.registerService(IContainerIndex.class.getName(), 
+                DirectoryContainerIndex.getDefault(), null);
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(_projectListener, 
+                IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+        JavaCore.addElementChangedListener(_classpathListener, ElementChangedEvent.POST_CHANGE);
+        NestedArchiveCache.scheduleCleanUp();
+    }
+    
+    /**
+     * @see org.osgi.framework.BundleActivator#stop(org.osgi.framework.BundleContext)
+     */
+    public void stop(BundleContext context) throws Exception {
+        JavaCore.removeElementChangedListener(_classpathListener);
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(_projectListener);
+        if(_indexRegistration != null) {
+            _indexRegistration.unregister();
+            _indexRegistration = null;
+        }
+        // the static pools would otherwise keep this bundle class loader alive
+        DirectoryContainer.shutdown();
+        ManifestClassPathResolver.shutdown();
+        NestedArchiveCache.shutdown();
+        ArchivePrefetcher.shutdown();
+        Logger.shutdown();
+    }
+}
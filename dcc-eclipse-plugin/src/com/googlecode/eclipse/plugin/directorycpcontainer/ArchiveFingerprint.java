@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.File;
+
+/**
+ * Identifies the content of an archive by its path, length and last modification time, 
+ * so that results computed from an archive can be reused until it is modified.
+ * 
+ * @author Frederic Camblor
+ */
+public final class ArchiveFingerprint {
+    
+    // absolute path of the archive
+    private final String _path;
+    // length of the archive in bytes
+    private final long _length;
+    // last modification time of the archive
+    private final long _lastModified;
+    
+    /**
+     * @param path absolute path of the archive
+     * @param length length of the archive in bytes
+     * @param lastModified last modification time of the archive
+     */
+    public ArchiveFingerprint(String path, long length, long lastModified) {
+        _path = path;
+        _length = length;
+        _lastModified = lastModified;
+    }
+    
+    /**
+     * Reads the fingerprint of an archive from the file system
+     * 
+     * @param archive the archive file
+     * @return the current fingerprint of the archive
+     */
+    public static ArchiveFingerprint of(File archive) {
+        return new ArchiveFingerprint(archive.getAbsolutePath(), archive.length(), archive.lastModified());
+    }
+    
+    /**
+     * @return absolute path of the archive
+     */
+    public String getPath() {
+        return _path;
+    }
+    
+    /**
+     * @return length of the archive in bytes
+     */
+    public long getLength() {
+        return _length;
+    }
+    
+    /**
+     * @return last modification time of the archive
+     */
+    public long getLastModified() {
+        return _lastModified;
+    }
+    
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof ArchiveFingerprint)) {
+            return false;
+        }
+        ArchiveFingerprint other = (ArchiveFingerprint)obj;
+        return _length == other._length && _lastModified == other._lastModified 
+            && _path.equals(other._path);
+    }
+    
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        int hash = _path.hashCode();
+        hash = 31 * hash + (int)(_length ^ (_length >>> 32));
+        return 31 * hash + (int)(_lastModified ^ (_lastModified >>> 32));
+    }
+    
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return _path + " [" + _length + " bytes, " + _lastModified + "]";
+    }
+}
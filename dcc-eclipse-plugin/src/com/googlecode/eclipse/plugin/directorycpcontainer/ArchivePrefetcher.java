@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the central directory of archives in the background, so that they are in the 
+ * OS page cache by the time JDT's indexer opens them.  Reads are positional NIO reads 
+ * into a reused buffer, on a small pool of minimum priority threads; when the pool queue 
+ * is full, further archives are simply not prefetched.
+ * 
+ * @author Frederic Camblor
+ */
+public class ArchivePrefetcher {
+    
+    // size of the chunks the central directory is read by
+    private final static int CHUNK_SIZE = 64 * 1024;
+    // maximum number of archives waiting to be prefetched
+    private final static int QUEUE_CAPACITY = 1024;
+    
+    private final static ThreadPoolExecutor PREFETCH_EXECUTOR = new ThreadPoolExecutor(
+            2, 2, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+            new DaemonThreadFactory("Directory Container prefetcher", Thread.MIN_PRIORITY), 
+            new ThreadPoolExecutor.DiscardPolicy());
+    
+    static {
+        PREFETCH_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+    
+    // read buffer of each prefetching thread
+    private final static ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(CHUNK_SIZE);
+        }
+    };
+    
+    /**
+     * Schedules the prefetch of the central directory of the given archives
+     * 
+     * @param archives archives JDT is about to open
+     */
+    public static void prefetch(Collection<File> archives) {
+        for(final File archive: archives) {
+            PREFETCH_EXECUTOR.execute(new Runnable() {
+                public void run() {
+                    prefetch(archive);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Stops the prefetching threads, when the bundle stops
+     */
+    static void shutdown() {
+        PREFETCH_EXECUTOR.shutdownNow();
+    }
+    
+    /**
+     * Reads the central directory of an archive and drops the bytes
+     */
+    private static void prefetch(File archive) {
+        try {
+            RandomAccessFile file = new RandomAccessFile(archive, "r");
+            try {
+                FileChannel channel = file.getChannel();
+                ZipCentralDirectory centralDirectory = ZipCentralDirectory.locate(channel);
+                if(centralDirectory == null) {
+                    return;
+                }
+                ByteBuffer buffer = BUFFER.get();
+                long position = centralDirectory.getOffset();
+                long end = position + centralDirectory.getLength();
+                while(position < end) {
+                    buffer.clear();
+                    buffer.limit((int)Math.min(buffer.capacity(), end - position));
+                    int read = channel.read(buffer, position);
+                    if(read < 0) {
+                        break;
+                    }
+                    position += read;
+                }
+            } finally {
+                file.close();
+            }
+        } catch(IOException e) {
+            // only an optimization : JDT will report unreadable archives itself
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
+
+import com.googlecode.eclipse.plugin.directorycpcontainer.api.IAttachmentResolver;
+
+/**
+ * Registry of the attachment resolvers contributed to the attachmentResolvers extension 
+ * point.  Contributions are loaded once, on first use, and asked by decreasing priority.
+ * 
+ * @author Frederic Camblor
+ */
+public class AttachmentResolvers {
+    
+    /**
+     * Identifier of the attachment resolvers extension point
+     */
+    public final static String EXTENSION_POINT_ID = Logger.PLUGIN_ID + ".attachmentResolvers";
+    
+    private final static String CLASS_ATTRIBUTE = "class";
+    private final static String PRIORITY_ATTRIBUTE = "priority";
+    
+    // resolvers by decreasing priority, loaded on first use
+    private static volatile IAttachmentResolver[] resolvers;
+    
+    /**
+     * @param lib a library of a container
+     * @param exts the container extensions, lower case
+     * @return absolute path of the source archive of the library, null if no resolver found one
+     */
+    public static String resolveSource(File lib, Set<String> exts) {
+        return resolve(lib, exts, true, false);
+    }
+    
+    /**
+     * @param lib a library of a container
+     * @param exts the container extensions, lower case
+     * @return absolute path of the javadoc archive of the library, null if no resolver found one
+     */
+    public static String resolveJavadoc(File lib, Set<String> exts) {
+        return resolve(lib, exts, false, false);
+    }
+    
+    /**
+     * Same as resolveSource, but only asks the resolvers looking elsewhere than next to 
+     * the library
+     */
+    static String resolveExternalSource(File lib, Set<String> exts) {
+        return resolve(lib, exts, true, true);
+    }
+    
+    /**
+     * Same as resolveJavadoc, but only asks the resolvers looking elsewhere than next to 
+     * the library
+     */
+    static String resolveExternalJavadoc(File lib, Set<String> exts) {
+        return resolve(lib, exts, false, true);
+    }
+    
+    /**
+     * @param source true to resolve the source archive, false for the javadoc one
+     * @param externalOnly true to skip the resolver of archives found next to the library
+     * @return absolute path of the attachment, null if no resolver found one
+     */
+    private static String resolve(File lib, Set<String> exts, boolean source, boolean externalOnly) {
+        for(IAttachmentResolver resolver: getResolvers()) {
+            if(externalOnly && resolver instanceof SuffixAttachmentResolver) {
+                continue;
+            }
+            try {
+                String path = source ? resolver.resolveSource(lib, exts) : resolver.resolveJavadoc(lib, exts);
+                if(path != null) {
+                    return path;
+                }
+            } catch(OperationCanceledException e) {
+                // the scan has been cancelled : stop resolving
+                throw e;
+            } catch(RuntimeException e) {
+                // a faulty contribution must not break the container
+                Logger.log(Logger.ERROR, e);
+            }
+        }
+        return null;
+    }
+    
+    private static IAttachmentResolver[] getResolvers() {
+        IAttachmentResolver[] loaded = resolvers;
+        if(loaded == null) {
+            loaded = loadResolvers();
+            resolvers = loaded;
+        }
+        return loaded;
+    }
+    
+    /**
+     * Instantiates the contributed resolvers, falling back on the same directory suffix 
+     * convention when none can be loaded
+     */
+    private static IAttachmentResolver[] loadResolvers() {
+        final List<IAttachmentResolver> loaded = new ArrayList<IAttachmentResolver>();
+        final List<Integer> priorities = new ArrayList<Integer>();
+        IExtensionRegistry registry = Platform.getExtensionRegistry();
+        if(registry != null) {
+            for(IConfigurationElement element: registry.getConfigurationElementsFor(EXTENSION_POINT_ID)) {
+                try {
+                    Object resolver = element.createExecutableExtension(CLASS_ATTRIBUTE);
+                    if(resolver instanceof IAttachmentResolver) {
+                        loaded.add((IAttachmentResolver)resolver);
+                        priorities.add(Integer.valueOf(parsePriority(element.getAttribute(PRIORITY_ATTRIBUTE))));
+                    }
+                } catch(CoreException e) {
+                    Logger.log(Logger.ERROR, e);
+                }
+            }
+        }
+        if(loaded.isEmpty()) {
+            return new IAttachmentResolver[] { new SuffixAttachmentResolver() };
+        }
+        
+        List<Integer> order = new ArrayList<Integer>();
+        for(int i = 0; i < loaded.size(); i++) {
+            order.add(Integer.valueOf(i));
+        }
+        // stable sort : equal priorities keep the registry order
+        Collections.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return priorities.get(b.intValue()).compareTo(priorities.get(a.intValue()));
+            }
+        });
+        IAttachmentResolver[] sorted = new IAttachmentResolver[loaded.size()];
+        for(int i = 0; i < sorted.length; i++) {
+            sorted[i] = loaded.get(order.get(i).intValue());
+        }
+        return sorted;
+    }
+    
+    private static int parsePriority(String priority) {
+        if(priority == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(priority.trim());
+        } catch(NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Index of the classes provided by the archives of a container, stored as a file of 
+ * records sorted by class name.  Classes provided by several archives are adjacent in 
+ * the file, so shadowed classes and split packages are found in one sequential pass, 
+ * without re-reading the archives.  The file is read to the heap rather than mapped : 
+ * a mapped file can't be replaced on Windows until the mapping is garbage collected, 
+ * which would make updates fail while an index is open.
+ * 
+ * The index is updated incrementally : archives whose fingerprint did not change keep 
+ * the classes recorded for them, only new or modified archives have their central 
+ * directory read.
+ * 
+ * File layout (big endian) :
+ *   int magic, int version
+ *   int archive count, then for each archive : string path, long length, long last modified
+ *   int class count, then int[class count] positions of the class records
+ *   class records sorted by name then archive : int archive index, string class name
+ * where strings are an unsigned short byte count followed by the UTF-8 bytes.
+ * Archives are stored in classpath order, so the first archive of a class wins.
+ * 
+ * @author Frederic Camblor
+ */
+public final class ClassIndex {
+    
+    private final static int MAGIC = 0x44434349;
+    private final static int VERSION = 1;
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+    private final static String CLASS_SUFFIX = ".class";
+    
+    // the index file content
+    private final ByteBuffer _buffer;
+    // indexed archives, in classpath order
+    private final ArchiveFingerprint[] _archives;
+    // position of the class records positions table
+    private final int _tablePosition;
+    // number of class records
+    private final int _size;
+    
+    private ClassIndex(ByteBuffer buffer, ArchiveFingerprint[] archives, int tablePosition, int size) {
+        _buffer = buffer;
+        _archives = archives;
+        _tablePosition = tablePosition;
+        _size = size;
+    }
+    
+    /**
+     * Reads an index file to the heap, leaving the file free to be replaced
+     * 
+     * @param indexFile the index file
+     * @return the index, or null if the file does not exist or is not a valid index
+     */
+    public static ClassIndex read(File indexFile) {
+        if(!indexFile.isFile()) {
+            return null;
+        }
+        try {
+            RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+            try {
+                ByteBuffer buffer = ZipCentralDirectory.readFully(file.getChannel(), 0, (int)file.length())
+                    .order(ByteOrder.BIG_ENDIAN);
+                if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                    return null;
+                }
+                ArchiveFingerprint[] archives = new ArchiveFingerprint[buffer.getInt()];
+                for(int i = 0; i < archives.length; i++) {
+                    String path = readString(buffer);
+                    archives[i] = new ArchiveFingerprint(path, buffer.getLong(), buffer.getLong());
+                }
+                int size = buffer.getInt();
+                return new ClassIndex(buffer, archives, buffer.position(), size);
+            } finally {
+                file.close();
+            }
+        } catch(IOException e) {
+            Logger.log(Logger.WARNING, indexFile + ": " + e.getMessage());
+        } catch(RuntimeException e) {
+            // truncated or corrupted index : it will be rebuilt
+            Logger.log(Logger.WARNING, indexFile + ": " + e);
+        }
+        return null;
+    }
+    
+    /**
+     * Brings an index file up to date with the given archives
+     * 
+     * @param indexFile the index file, created if needed
+     * @param archives the container archives, in classpath order
+     * @return the updated index, or null if it could not be written
+     */
+    public static ClassIndex update(File indexFile, List<File> archives) {
+        ClassIndex previous = read(indexFile);
+        Map<ArchiveFingerprint, List<String>> previousClasses = Collections.emptyMap();
+        if(previous != null) {
+            previousClasses = previous.getClassesByArchive();
+        }
+        
+        ArchiveFingerprint[] fingerprints = new ArchiveFingerprint[archives.size()];
+        List<Record> records = new ArrayList<Record>();
+        boolean changed = previous == null || previous._archives.length != fingerprints.length;
+        for(int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = ArchiveFingerprint.of(archives.get(i));
+            List<String> classes = previousClasses.get(fingerprints[i]);
+            if(classes == null) {
+                classes = readClassNames(archives.get(i));
+            }
+            if(!changed && !fingerprints[i].equals(previous._archives[i])) {
+                changed = true;
+            }
+            for(String className: classes) {
+                records.add(new Record(className, i));
+            }
+        }
+        if(!changed) {
+            return previous;
+        }
+        Collections.sort(records);
+        
+        try {
+            write(indexFile, fingerprints, records);
+        } catch(IOException e) {
+            Logger.log(Logger.WARNING, indexFile + ": " + e.getMessage());
+            return null;
+        }
+        return read(indexFile);
+    }
+    
+    /**
+     * @return the classes provided by several archives, with those archives in classpath 
+     * order : only the first one is used
+     */
+    public Map<String, List<File>> getShadowedClasses() {
+        Map<String, List<File>> shadowed = new LinkedHashMap<String, List<File>>();
+        int i = 0;
+        while(i < _size) {
+            String className = getClassName(i);
+            int end = i + 1;
+            while(end < _size && getClassName(end).equals(className)) {
+                end++;
+            }
+            if(end - i > 1) {
+                List<File> archives = new ArrayList<File>(end - i);
+                for(int j = i; j < end; j++) {
+                    archives.add(new File(_archives[getArchiveIndex(j)].getPath()));
+                }
+                shadowed.put(className, archives);
+            }
+            i = end;
+        }
+        return shadowed;
+    }
+    
+    /**
+     * @return the packages whose classes come from several archives, with those archives 
+     * in classpath order
+     */
+    public Map<String, List<File>> getSplitPackages() {
+        Map<String, TreeSet<Integer>> packageArchives = new TreeMap<String, TreeSet<Integer>>();
+        for(int i = 0; i < _size; i++) {
+            String className = getClassName(i);
+            int lastDot = className.lastIndexOf('.');
+            String packageName = lastDot == -1 ? "" : className.substring(0, lastDot);
+            TreeSet<Integer> archives = packageArchives.get(packageName);
+            if(archives == null) {
+                archives = new TreeSet<Integer>();
+                packageArchives.put(packageName, archives);
+            }
+            archives.add(Integer.valueOf(getArchiveIndex(i)));
+        }
+        
+        Map<String, List<File>> split = new LinkedHashMap<String, List<File>>();
+        for(Map.Entry<String, TreeSet<Integer>> entry: packageArchives.entrySet()) {
+            if(entry.getValue().size() > 1) {
+                List<File> archives = new ArrayList<File>(entry.getValue().size());
+                for(Integer archive: entry.getValue()) {
+                    archives.add(new File(_archives[archive.intValue()].getPath()));
+                }
+                split.put(entry.getKey(), archives);
+            }
+        }
+        return split;
+    }
+    
+    /**
+     * Describes the split packages and shadowed classes of the index, for the user
+     * 
+     * @param max maximum number of lines
+     * @return one line per conflict, split packages first
+     */
+    public List<String> describeConflicts(int max) {
+        List<String> lines = new ArrayList<String>();
+        for(Map.Entry<String, List<File>> split: getSplitPackages().entrySet()) {
+            if(lines.size() == max) {
+                return lines;
+            }
+            lines.add(NLS.bind(Messages.SplitPackage, split.getKey(), archiveNames(split.getValue())));
+        }
+        for(Map.Entry<String, List<File>> shadowed: getShadowedClasses().entrySet()) {
+            if(lines.size() == max) {
+                return lines;
+            }
+            List<File> archives = shadowed.getValue();
+            lines.add(NLS.bind(Messages.ShadowedClass, new Object[] { shadowed.getKey(), 
+                    archives.get(0).getName(), archiveNames(archives.subList(1, archives.size())) }));
+        }
+        return lines;
+    }
+    
+    private static String archiveNames(List<File> archives) {
+        StringBuilder names = new StringBuilder();
+        for(File archive: archives) {
+            if(names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(archive.getName());
+        }
+        return names.toString();
+    }
+    
+    /**
+     * @return the classes recorded for each archive
+     */
+    private Map<ArchiveFingerprint, List<String>> getClassesByArchive() {
+        Map<ArchiveFingerprint, List<String>> classes = new HashMap<ArchiveFingerprint, List<String>>();
+        for(ArchiveFingerprint archive: _archives) {
+            classes.put(archive, new ArrayList<String>());
+        }
+        for(int i = 0; i < _size; i++) {
+            classes.get(_archives[getArchiveIndex(i)]).add(getClassName(i));
+        }
+        return classes;
+    }
+    
+    private int getRecordPosition(int i) {
+        return _buffer.getInt(_tablePosition + 4 * i);
+    }
+    
+    private int getArchiveIndex(int i) {
+        return _buffer.getInt(getRecordPosition(i));
+    }
+    
+    private String getClassName(int i) {
+        ByteBuffer record = _buffer.duplicate();
+        record.position(getRecordPosition(i) + 4);
+        return readString(record);
+    }
+    
+    /**
+     * Reads a string written by writeString
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+    
+    /**
+     * @return the names of the classes of an archive, read from its central directory
+     */
+    private static List<String> readClassNames(File archive) {
+        List<String> classes = new ArrayList<String>();
+        try {
+            RandomAccessFile file = new RandomAccessFile(archive, "r");
+            try {
+                FileChannel channel = file.getChannel();
+                ZipCentralDirectory centralDirectory = ZipCentralDirectory.locate(channel);
+                if(centralDirectory == null) {
+                    return classes;
+                }
+                for(String entry: centralDirectory.readEntryNames(channel)) {
+                    if(entry.endsWith(CLASS_SUFFIX) && !entry.startsWith("META-INF/")
+                            && !entry.endsWith("module-info.class") && !entry.endsWith("package-info.class")) {
+                        classes.add(entry.substring(0, entry.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+                    }
+                }
+            } finally {
+                file.close();
+            }
+        } catch(IOException e) {
+            Logger.log(Logger.WARNING, archive + ": " + e.getMessage());
+        }
+        return classes;
+    }
+    
+    /**
+     * Writes the index to a temporary file then moves it over the index file
+     */
+    private static void write(File indexFile, ArchiveFingerprint[] archives, List<Record> records) throws IOException {
+        indexFile.getParentFile().mkdirs();
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(archives.length);
+            for(ArchiveFingerprint archive: archives) {
+                writeString(out, archive.getPath().getBytes(UTF8));
+                out.writeLong(archive.getLength());
+                out.writeLong(archive.getLastModified());
+            }
+            out.writeInt(records.size());
+            // records start right after the positions table
+            int position = out.size() + 4 * records.size();
+            for(Record record: records) {
+                out.writeInt(position);
+                position += 4 + 2 + record.bytes.length;
+            }
+            for(Record record: records) {
+                out.writeInt(record.archive);
+                writeString(out, record.bytes);
+            }
+        } finally {
+            out.close();
+        }
+        // File.renameTo does not replace existing files on every platform
+        if(!tmp.renameTo(indexFile) && !(indexFile.delete() && tmp.renameTo(indexFile))) {
+            tmp.delete();
+            throw new IOException(tmp + " could not be renamed");
+        }
+    }
+    
+    /**
+     * Writes a string as its UTF-8 byte count followed by the bytes
+     */
+    private static void writeString(DataOutputStream out, byte[] bytes) throws IOException {
+        if(bytes.length > 0xFFFF) {
+            throw new IOException("String too long for the index");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+    
+    /**
+     * A (class, archive) pair, ordered by class name then archive
+     */
+    private static class Record implements Comparable<Record> {
+        private final String className;
+        private final int archive;
+        private final byte[] bytes;
+        
+        private Record(String className, int archive) {
+            this.className = className;
+            this.archive = archive;
+            this.bytes = className.getBytes(UTF8);
+        }
+        
+        public int compareTo(Record other) {
+            int cmp = className.compareTo(other.className);
+            if(cmp != 0) {
+                return cmp;
+            }
+            return archive < other.archive ? -1 : (archive == other.archive ? 0 : 1);
+        }
+    }
+}
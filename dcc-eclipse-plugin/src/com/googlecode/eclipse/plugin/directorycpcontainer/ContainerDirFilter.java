@@ -1,84 +1,175 @@
-/*
- * Copyright (c) 1998, Regents of the University of California
- * All rights reserved.
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- *
- *     * Redistributions of source code must retain the above copyright
- *       notice, this list of conditions and the following disclaimer.
- *     * Redistributions in binary form must reproduce the above copyright
- *       notice, this list of conditions and the following disclaimer in the
- *       documentation and/or other materials provided with the distribution.
- *     * Neither the name of the University of California, Berkeley nor the
- *       names of its contributors may be used to endorse or promote products
- *       derived from this software without specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
- * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
- * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
- * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
- * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
- * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
- * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
- */
-package com.googlecode.eclipse.plugin.directorycpcontainer;
-
-import org.eclipse.core.resources.IFile;
-import org.eclipse.jdt.core.IClasspathEntry;
-import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.JavaCore;
-import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jface.viewers.Viewer;
-import org.eclipse.jface.viewers.ViewerFilter;
-
-/**
- * This element filter filters files from the Java Package View if they are included in a 
- * DirectoryContainer that is on the parent Java project's classpath.  This will prevent 
- * the user from right-clicking hte file and adding it to the build path as a CPE_LIBRARY 
- * classpath entry and thus prevent duplication on the classpath.
- *  
- * @author Frederic Camblor
- */
-public class ContainerDirFilter extends ViewerFilter {
-
-    /**
-     * @ return false if the Java element is a file that is contained in a 
-     * DirectoryContainer that is in the classpath of the owning Java project   
-     * (non-Javadoc)
-     * @see org.eclipse.jface.viewers.ViewerFilter#select(
-     * org.eclipse.jface.viewers.Viewer, java.lang.Object, java.lang.Object)
-     */
-    @Override
-    public boolean select(Viewer viewer, Object parentElement, Object element) {
-        if(element instanceof IFile) {
-            IFile f = (IFile)element;
-            IJavaProject jp = JavaCore.create(f.getProject());
-            try {
-                // lets see if this file is included in a DirectoryContainer
-                IClasspathEntry[] entries = jp.getRawClasspath();
-                for(IClasspathEntry entry: entries) {
-                    if(entry.getEntryKind()==IClasspathEntry.CPE_CONTAINER) {
-                        if(DirectoryContainer.ID.isPrefixOf(entry.getPath())) {
-                            // we know this is a DirectoryContainer so lets get the
-                            // instance
-                            DirectoryContainer con = (DirectoryContainer)JavaCore.
-                                              getClasspathContainer(entry.getPath(), jp);
-                            if(con.isContained(f.getLocation().toFile())){
-                                // this file will is included in the container, so dont 
-                                // show it
-                                return false;
-                            }
-                        }
-                    }
-                }
-            } catch(JavaModelException e) {
-                Logger.log(Logger.ERROR, e);
-            }
-        }
-        return true;
-    }
-
-}
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerFilter;
+
+/**
+ * This element filter filters files from the Java Package View if they are included in a 
+ * DirectoryContainer that is on the parent Java project's classpath.  This will prevent 
+ * the user from right-clicking hte file and adding it to the build path as a CPE_LIBRARY 
+ * classpath entry and thus prevent duplication on the classpath.
+ * 
+ * Files are first looked up in the container index; the project DirectoryContainers are 
+ * only resolved for files the index does not know about.
+ *  
+ * @author Frederic Camblor
+ */
+public class ContainerDirFilter extends ViewerFilter {
+
+    /**
+     * Filters all the children of a folder at once : the DirectoryContainers of the 
+     * owning project are looked up once per project rather than once per element.
+     * 
+     * @see org.eclipse.jface.viewers.ViewerFilter#filter(
+     * org.eclipse.jface.viewers.Viewer, java.lang.Object, java.lang.Object[])
+     */
+    @Override
+    public Object[] filter(Viewer viewer, Object parent, Object[] elements) {
+        ArrayList<Object> selected = new ArrayList<Object>(elements.length);
+        // siblings nearly always share the same project, so only switch container set 
+        // when the project changes
+        IProject project = null;
+        List<DirectoryContainer> containers = null;
+        for(Object element: elements) {
+            if(element instanceof IFile) {
+                IFile f = (IFile)element;
+                File file = getFile(f);
+                if(file == null) {
+                    selected.add(element);
+                    continue;
+                }
+                if(f.getProject() != project) {
+                    project = f.getProject();
+                    containers = null;
+                }
+                if(DirectoryContainerIndex.getDefault().isContained(project, file)) {
+                    continue;
+                }
+                if(containers == null) {
+                    containers = getDirectoryContainers(project);
+                }
+                if(isContained(file, containers)) {
+                    continue;
+                }
+            }
+            selected.add(element);
+        }
+        if(selected.size() == elements.length) {
+            return elements;
+        }
+        return selected.toArray();
+    }
+
+    /**
+     * @ return false if the Java element is a file that is contained in a 
+     * DirectoryContainer that is in the classpath of the owning Java project   
+     * (non-Javadoc)
+     * @see org.eclipse.jface.viewers.ViewerFilter#select(
+     * org.eclipse.jface.viewers.Viewer, java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public boolean select(Viewer viewer, Object parentElement, Object element) {
+        if(element instanceof IFile) {
+            IFile f = (IFile)element;
+            File file = getFile(f);
+            if(file == null) {
+                return true;
+            }
+            if(DirectoryContainerIndex.getDefault().isContained(f.getProject(), file)) {
+                return false;
+            }
+            return !isContained(file, getDirectoryContainers(f.getProject()));
+        }
+        return true;
+    }
+    
+    /**
+     * @return the DirectoryContainers on the classpath of the given project
+     */
+    private List<DirectoryContainer> getDirectoryContainers(IProject project) {
+        List<DirectoryContainer> containers = new ArrayList<DirectoryContainer>();
+        IJavaProject jp = JavaCore.create(project);
+        try {
+            IClasspathEntry[] entries = jp.getRawClasspath();
+            for(IClasspathEntry entry: entries) {
+                if(entry.getEntryKind()==IClasspathEntry.CPE_CONTAINER) {
+                    if(DirectoryContainer.ID.isPrefixOf(entry.getPath())) {
+                        // we know this is a DirectoryContainer so lets get the
+                        // instance
+                        IClasspathContainer con = JavaCore.getClasspathContainer(entry.getPath(), jp);
+                        if(con instanceof DirectoryContainer) {
+                            containers.add((DirectoryContainer)con);
+                        }
+                    }
+                }
+            }
+        } catch(JavaModelException e) {
+            Logger.log(Logger.ERROR, e);
+        }
+        return containers;
+    }
+    
+    /**
+     * @return the local file of the given workspace file, null if it has no local location
+     */
+    private File getFile(IFile f) {
+        IPath location = f.getLocation();
+        if(location == null) {
+            return null;
+        }
+        return location.toFile();
+    }
+    
+    /**
+     * @return true if the file is included in one of the given containers
+     */
+    private boolean isContained(File file, List<DirectoryContainer> containers) {
+        for(DirectoryContainer con: containers) {
+            if(con.isContained(file)) {
+                // this file will is included in the container, so dont 
+                // show it
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
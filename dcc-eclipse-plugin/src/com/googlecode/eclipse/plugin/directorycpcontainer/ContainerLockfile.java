@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Lockfile recording the resolution of a DirectoryContainer, stored in the library 
+ * directory so it can be committed along with the libraries.  When the directory still 
+ * matches it, the entries are rebuilt from the lockfile with one directory listing and a 
+ * stat per recorded file, instead of probing for every attachment and reading manifests.
+ * 
+ * The file is a tab separated text file :
+ *   version	2
+ *   extensions	jar,zip
+ *   manifestClassPath	false
+ *   lib	foo.jar	1234	foo-sources.jar	567	foo-javadoc.jar	89
+ *   lib	../common/bar.jar	4321	-	-	-	-
+ *   ignored	bar-sources.jar
+ * with "-" for missing attachments, and an ignored line for every archive of the 
+ * directory that is neither a library nor an attachment.  Paths are relative to the 
+ * library directory, so the lockfile holds for any checkout location.
+ * 
+ * Only the attachments found next to their library are recorded : the ones found 
+ * elsewhere, such as in a local repository, depend on the machine.  They are resolved 
+ * again when loading, by the resolvers that don't look next to the library.
+ * 
+ * Files are fingerprinted by length only, since checkouts do not preserve modification 
+ * times.  As a consequence, a library rebuilt with the same length but another manifest 
+ * Class-Path keeps its recorded expansion until the lockfile is deleted or another 
+ * change to the directory invalidates it.
+ * 
+ * @author Frederic Camblor
+ */
+public class ContainerLockfile {
+    
+    /**
+     * Name of the lockfile, in the library directory
+     */
+    public final static String FILE_NAME = ".directorycontainer.lock";
+    
+    private final static String VERSION = "2";
+    private final static String ENCODING = "UTF-8";
+    private final static String NONE = "-";
+    private final static String SEPARATOR = "\t";
+    
+    // the library directory
+    private final File _dir;
+    // configured extensions, lower case
+    private final Set<String> _exts;
+    // whether manifest Class-Path references are part of the resolution
+    private final boolean _manifestClassPath;
+    
+    /**
+     * @param dir the library directory
+     * @param exts the container extensions, lower case
+     * @param manifestClassPath whether the container follows manifest Class-Path references
+     */
+    public ContainerLockfile(File dir, Set<String> exts, boolean manifestClassPath) {
+        _dir = normalize(dir);
+        _exts = exts;
+        _manifestClassPath = manifestClassPath;
+    }
+    
+    /**
+     * @return the lockfile
+     */
+    public File getFile() {
+        return new File(_dir, FILE_NAME);
+    }
+    
+    /**
+     * Rebuilds the container entries from the lockfile, provided it was written for the 
+     * same configuration and every recorded file still has its recorded length, and no 
+     * archive has been added to the directory since.
+     * 
+     * @return the locked entries, or null if there is no usable lockfile
+     */
+    public IClasspathEntry[] load() {
+        List<String> lines;
+        try {
+            lines = readLines();
+        } catch(FileNotFoundException e) {
+            return null;
+        } catch(IOException e) {
+            Logger.log(Logger.WARNING, getFile() + ": " + e.getMessage());
+            return null;
+        }
+        List<String> header = header();
+        if(lines.size() < header.size() || !lines.subList(0, header.size()).equals(header)) {
+            return null;
+        }
+        
+        List<IClasspathEntry> entries = new ArrayList<IClasspathEntry>();
+        Set<String> recordedNames = new HashSet<String>();
+        for(String line: lines.subList(header.size(), lines.size())) {
+            String[] fields = line.split(SEPARATOR);
+            if(fields.length == 2 && fields[0].equals("ignored")) {
+                recordedNames.add(fields[1]);
+                continue;
+            }
+            if(fields.length != 7 || !fields[0].equals("lib")) {
+                return null;
+            }
+            File lib = checkRecord(fields[1], fields[2], recordedNames);
+            File src = checkRecord(fields[3], fields[4], recordedNames);
+            File javadoc = checkRecord(fields[5], fields[6], recordedNames);
+            if(lib == null || (src == null) != fields[3].equals(NONE) 
+                    || (javadoc == null) != fields[5].equals(NONE)) {
+                return null;
+            }
+            if(src == null) {
+                String externalSrc = AttachmentResolvers.resolveExternalSource(lib, _exts);
+                src = externalSrc == null ? null : new File(externalSrc);
+            }
+            if(javadoc == null) {
+                String externalJavadoc = AttachmentResolvers.resolveExternalJavadoc(lib, _exts);
+                javadoc = externalJavadoc == null ? null : new File(externalJavadoc);
+            }
+            entries.add(newLibraryEntry(lib, src, javadoc));
+        }
+        
+        // an archive added to the directory would not be recorded
+        if(!recordedNames.equals(listArchiveNames())) {
+            return null;
+        }
+        return entries.toArray(new IClasspathEntry[entries.size()]);
+    }
+    
+    /**
+     * Writes the lockfile for the given entries, unless it already holds exactly that
+     * 
+     * @param entries the entries resolved by a full scan
+     */
+    public void write(IClasspathEntry[] entries) {
+        List<String> lines = header();
+        Set<String> ignoredNames = new TreeSet<String>(listArchiveNames());
+        for(IClasspathEntry entry: entries) {
+            StringBuilder line = new StringBuilder("lib");
+            File lib = entry.getPath().toFile();
+            appendRecord(line, lib, ignoredNames);
+            appendRecord(line, getAttachment(lib, entry.getSourceAttachmentPath() == null ? 
+                    null : entry.getSourceAttachmentPath().toFile()), ignoredNames);
+            appendRecord(line, getAttachment(lib, getJavadocFile(entry)), ignoredNames);
+            lines.add(line.toString());
+        }
+        // archives neither used as library nor as attachment, e.g. orphan -sources archives
+        for(String name: ignoredNames) {
+            lines.add("ignored" + SEPARATOR + name);
+        }
+        
+        try {
+            if(lines.equals(readLines())) {
+                return;
+            }
+        } catch(IOException e) {
+            // missing or unreadable : rewrite it
+        }
+        
+        File lockfile = getFile();
+        File tmp = new File(_dir, FILE_NAME + ".tmp");
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), ENCODING);
+            try {
+                for(String line: lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+            // File.renameTo does not replace existing files on every platform
+            if(!tmp.renameTo(lockfile) && !(lockfile.delete() && tmp.renameTo(lockfile))) {
+                throw new IOException(tmp + " could not be renamed");
+            }
+        } catch(IOException e) {
+            tmp.delete();
+            Logger.log(Logger.WARNING, lockfile + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * @return the lines describing the configuration the lockfile applies to
+     */
+    private List<String> header() {
+        List<String> header = new ArrayList<String>();
+        header.add("version" + SEPARATOR + VERSION);
+        StringBuilder exts = new StringBuilder();
+        for(String ext: new TreeSet<String>(_exts)) {
+            if(exts.length() > 0) {
+                exts.append(',');
+            }
+            exts.append(ext);
+        }
+        header.add("extensions" + SEPARATOR + exts);
+        header.add("manifestClassPath" + SEPARATOR + _manifestClassPath);
+        return header;
+    }
+    
+    private List<String> readLines() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(getFile()), ENCODING));
+        try {
+            String line;
+            while((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+    
+    /**
+     * Checks a recorded file against the file system
+     * 
+     * @param name recorded path
+     * @param length recorded length
+     * @param recordedNames names of the recorded files of the library directory, updated
+     * @return the file if it still has the recorded length, null otherwise or if none 
+     * was recorded
+     */
+    private File checkRecord(String name, String length, Set<String> recordedNames) {
+        if(name.equals(NONE)) {
+            return null;
+        }
+        File file = new File(name);
+        if(!file.isAbsolute()) {
+            file = normalize(new File(_dir, name.replace('/', File.separatorChar)));
+        }
+        if(_dir.equals(file.getParentFile())) {
+            recordedNames.add(file.getName());
+        }
+        try {
+            if(file.length() != Long.parseLong(length) || !file.isFile()) {
+                return null;
+            }
+        } catch(NumberFormatException e) {
+            return null;
+        }
+        return file;
+    }
+    
+    /**
+     * Appends the path and length of a file to a lockfile line
+     * 
+     * @param line the line to append to
+     * @param file the recorded file, may be null
+     * @param ignoredNames names of the directory archives not recorded yet, updated
+     */
+    private void appendRecord(StringBuilder line, File file, Set<String> ignoredNames) {
+        if(file == null) {
+            line.append(SEPARATOR).append(NONE).append(SEPARATOR).append(NONE);
+            return;
+        }
+        file = normalize(file);
+        if(_dir.equals(file.getParentFile())) {
+            ignoredNames.remove(file.getName());
+        }
+        String name = relativize(file);
+        line.append(SEPARATOR).append(name).append(SEPARATOR).append(file.length());
+    }
+    
+    /**
+     * @return the attachment if it is next to its library, null otherwise : attachments 
+     * found elsewhere are not recorded
+     */
+    private static File getAttachment(File lib, File attachment) {
+        if(attachment == null || !normalize(attachment).getParentFile().equals(normalize(lib).getParentFile())) {
+            return null;
+        }
+        return attachment;
+    }
+    
+    /**
+     * @return the path of the file relative to the library directory, with / separators, 
+     * or its absolute path if it is on another file system root
+     */
+    private String relativize(File file) {
+        List<String> dirSegments = segments(_dir);
+        List<String> fileSegments = segments(file);
+        if(!dirSegments.get(0).equals(fileSegments.get(0))) {
+            return file.getAbsolutePath();
+        }
+        int common = 1;
+        while(common < dirSegments.size() && common < fileSegments.size() 
+                && dirSegments.get(common).equals(fileSegments.get(common))) {
+            common++;
+        }
+        StringBuilder path = new StringBuilder();
+        for(int i = common; i < dirSegments.size(); i++) {
+            path.append("../");
+        }
+        for(int i = common; i < fileSegments.size(); i++) {
+            path.append(fileSegments.get(i));
+            if(i < fileSegments.size() - 1) {
+                path.append('/');
+            }
+        }
+        return path.toString();
+    }
+    
+    /**
+     * @return the absolute file, without . and .. segments
+     */
+    private static File normalize(File file) {
+        List<String> segments = segments(file);
+        File normalized = new File(segments.get(0));
+        for(String segment: segments.subList(1, segments.size())) {
+            normalized = new File(normalized, segment);
+        }
+        return normalized;
+    }
+    
+    /**
+     * @return the file system root of the absolute file, followed by the names leading 
+     * to it with the . and .. segments resolved
+     */
+    private static List<String> segments(File file) {
+        LinkedList<String> names = new LinkedList<String>();
+        File root = file.getAbsoluteFile();
+        while(root.getParentFile() != null) {
+            names.addFirst(root.getName());
+            root = root.getParentFile();
+        }
+        List<String> segments = new ArrayList<String>();
+        segments.add(root.getPath());
+        for(String name: names) {
+            if(name.equals("..")) {
+                if(segments.size() > 1) {
+                    segments.remove(segments.size() - 1);
+                }
+            } else if(name.length() > 0 && !name.equals(".")) {
+                segments.add(name);
+            }
+        }
+        return segments;
+    }
+    
+    /**
+     * @return the names of the directory files having one of the container extensions
+     */
+    private Set<String> listArchiveNames() {
+        Set<String> names = new HashSet<String>();
+        String[] allNames = _dir.list();
+        if(allNames != null) {
+            for(String name: allNames) {
+                int dot = name.lastIndexOf('.');
+                if(dot != -1 && _exts.contains(name.substring(dot + 1).toLowerCase())) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+    
+    private static File getJavadocFile(IClasspathEntry entry) {
+        for(IClasspathAttribute attribute: entry.getExtraAttributes()) {
+            if(IClasspathAttribute.JAVADOC_LOCATION_ATTRIBUTE_NAME.equals(attribute.getName())) {
+                return new File(attribute.getValue());
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Creates a CPE_LIBRARY entry the same way DirectoryContainer does
+     */
+    private static IClasspathEntry newLibraryEntry(File lib, File src, File javadoc) {
+        IClasspathAttribute[] cpAttributes = new IClasspathAttribute[0];
+        if(javadoc != null) {
+            cpAttributes = new IClasspathAttribute[] { JavaCore.newClasspathAttribute(
+                    IClasspathAttribute.JAVADOC_LOCATION_ATTRIBUTE_NAME, javadoc.getAbsolutePath()) };
+        }
+        return JavaCore.newLibraryEntry(new Path(lib.getAbsolutePath()), 
+                src == null ? null : new Path(src.getAbsolutePath()), new Path("/"), 
+                new IAccessRule[0], cpAttributes, false);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Optional behaviours of a DirectoryContainer.  They are stored as extra attributes of 
+ * the container entry in the project's .classpath file, so they are shared with the 
+ * project like the container path itself :
+ *   &lt;classpathentry kind="con" path="com.googlecode...DIR_CONTAINER/lib/jar"&gt;
+ *     &lt;attributes&gt;
+ *       &lt;attribute name="com.googlecode...manifestClassPath" value="true"/&gt;
+ *     &lt;/attributes&gt;
+ *   &lt;/classpathentry&gt;
+ * 
+ * @author Frederic Camblor
+ */
+public class ContainerOptions {
+    
+    /**
+     * Also add the archives referenced by the Class-Path header of the libraries manifests
+     */
+    public final static String MANIFEST_CLASSPATH = Logger.PLUGIN_ID + ".manifestClassPath";
+    
+    /**
+     * Load the entries from the lockfile of the library directory when it is up to date, 
+     * and rewrite it after a full scan otherwise
+     */
+    public final static String LOCKFILE = Logger.PLUGIN_ID + ".lockfile";
+    
+    /**
+     * Read the central directory of newly published archives in the background, to warm 
+     * the OS page cache before JDT indexes them
+     */
+    public final static String PREFETCH = Logger.PLUGIN_ID + ".prefetch";
+    
+    /**
+     * Maintain an index of the classes of each archive, to report split packages and 
+     * shadowed classes
+     */
+    public final static String CLASS_INDEX = Logger.PLUGIN_ID + ".classIndex";
+    
+    /**
+     * Publish the jars nested in .zip distributions, extracted to a cache, instead of the 
+     * zips themselves
+     */
+    public final static String EXTRACT_NESTED = Logger.PLUGIN_ID + ".extractNested";
+    
+    // options with no attribute on the container entry
+    private final static ContainerOptions DEFAULTS = new ContainerOptions(new IClasspathAttribute[0]);
+    
+    // option values, by attribute name
+    private final Map<String, String> _values = new HashMap<String, String>();
+    
+    /**
+     * @param attributes extra attributes of the container entry
+     */
+    public ContainerOptions(IClasspathAttribute[] attributes) {
+        for(IClasspathAttribute attribute: attributes) {
+            _values.put(attribute.getName(), attribute.getValue());
+        }
+    }
+    
+    /**
+     * @return the options of the given container entry
+     */
+    public static ContainerOptions of(IClasspathEntry containerEntry) {
+        return new ContainerOptions(containerEntry.getExtraAttributes());
+    }
+    
+    /**
+     * Looks up the options of a container in the raw classpath of the project referencing it
+     * 
+     * @param containerPath path of the container
+     * @param project the Java project referencing the container
+     * @return the container options, defaults if the container entry can't be found
+     */
+    public static ContainerOptions lookup(IPath containerPath, IJavaProject project) {
+        try {
+            for(IClasspathEntry entry: project.getRawClasspath()) {
+                if(entry.getEntryKind() == IClasspathEntry.CPE_CONTAINER 
+                        && entry.getPath().equals(containerPath)) {
+                    return of(entry);
+                }
+            }
+        } catch(JavaModelException e) {
+            Logger.log(Logger.ERROR, e);
+        }
+        return DEFAULTS;
+    }
+    
+    /**
+     * @param option one of the option attribute names
+     * @return true if the option is enabled
+     */
+    public boolean isEnabled(String option) {
+        return Boolean.valueOf(_values.get(option)).booleanValue();
+    }
+    
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ContainerOptions && _values.equals(((ContainerOptions)obj)._values);
+    }
+    
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return _values.hashCode();
+    }
+}
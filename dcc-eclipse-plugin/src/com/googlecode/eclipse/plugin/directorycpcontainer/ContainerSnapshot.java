@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.File;
+
+import org.eclipse.jdt.core.IClasspathEntry;
+
+/**
+ * Immutable result of a DirectoryContainer directory scan.  Snapshots are published 
+ * atomically by the container, so readers always see a consistent set of entries 
+ * without any locking.
+ * 
+ * @author Frederic Camblor
+ */
+public final class ContainerSnapshot {
+    
+    // coarsest modification time resolution of the supported file systems (FAT), in ms
+    private final static long MTIME_GRANULARITY = 2000;
+    
+    // the classpath entries resolved by the scan
+    private final IClasspathEntry[] _entries;
+    // last modification time of the directory when the scan started
+    private final long _dirTimestamp;
+    // time the scan started, 0 if this snapshot does not come from a scan
+    private final long _scanTime;
+    // whether the directory existed and was a directory when scanned
+    private final boolean _valid;
+    
+    /**
+     * @param entries the resolved classpath entries, the array must not be modified afterwards
+     * @param dirTimestamp last modification time of the scanned directory, taken before 
+     *                     listing it
+     * @param scanTime time the scan started, 0 if the entries do not come from a scan
+     * @param valid whether the scanned directory exists and is a directory
+     */
+    public ContainerSnapshot(IClasspathEntry[] entries, long dirTimestamp, long scanTime, boolean valid) {
+        _entries = entries;
+        _dirTimestamp = dirTimestamp;
+        _scanTime = scanTime;
+        _valid = valid;
+    }
+    
+    /**
+     * @return a copy of the classpath entries of this snapshot
+     */
+    public IClasspathEntry[] getEntries() {
+        return _entries.clone();
+    }
+    
+    /**
+     * @return the number of classpath entries of this snapshot
+     */
+    public int size() {
+        return _entries.length;
+    }
+    
+    /**
+     * @return last modification time of the directory when it was scanned
+     */
+    public long getDirTimestamp() {
+        return _dirTimestamp;
+    }
+    
+    /**
+     * @return whether the directory existed and was a directory when scanned
+     */
+    public boolean isValid() {
+        return _valid;
+    }
+    
+    /**
+     * A snapshot taken within the modification time resolution of the directory last 
+     * change is not settled : a file added right after the listing may have left the 
+     * timestamp unchanged.  Such a snapshot is only up to date until that resolution 
+     * window is over, so that the directory gets scanned once more past it.
+     * 
+     * @return true if the given directory has not been modified since this snapshot was taken
+     */
+    public boolean isUpToDate(File dir) {
+        if(dir.lastModified() != _dirTimestamp) {
+            return false;
+        }
+        return _scanTime - _dirTimestamp > MTIME_GRANULARITY 
+            || System.currentTimeMillis() - _dirTimestamp <= MTIME_GRANULARITY;
+    }
+}
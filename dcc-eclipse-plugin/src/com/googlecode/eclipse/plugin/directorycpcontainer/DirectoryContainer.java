@@ -1,348 +1,731 @@
-/*
- * Copyright (c) 1998, Regents of the University of California
- * All rights reserved.
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- *
- *     * Redistributions of source code must retain the above copyright
- *       notice, this list of conditions and the following disclaimer.
- *     * Redistributions in binary form must reproduce the above copyright
- *       notice, this list of conditions and the following disclaimer in the
- *       documentation and/or other materials provided with the distribution.
- *     * Neither the name of the University of California, Berkeley nor the
- *       names of its contributors may be used to endorse or promote products
- *       derived from this software without specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
- * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
- * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
- * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
- * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
- * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
- * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
- */
-package com.googlecode.eclipse.plugin.directorycpcontainer;
-
-import java.io.File;
-import java.io.FilenameFilter;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
-
-import org.eclipse.core.runtime.IPath;
-import org.eclipse.core.runtime.Path;
-import org.eclipse.jdt.core.IAccessRule;
-import org.eclipse.jdt.core.IClasspathAttribute;
-import org.eclipse.jdt.core.IClasspathContainer;
-import org.eclipse.jdt.core.IClasspathEntry;
-import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.JavaCore;
-
-/** 
- * This classpath container add archive files from a configured project directory to the
- * classpath as CPE_LIBRARY entries, and it attaches -src/-source/-sources archives as source attachments
- * plus -javadoc javadoc attachments
- * 
- * @author Frederic Camblor
- */
-public class DirectoryContainer implements IClasspathContainer {
-    public final static Path ID = new Path("com.googlecode.eclipse.plugin.directorycpcontainer.DIR_CONTAINER");
-    
-    /**
-     * Suffixes list to search for sources archive files
-     */
-    private final static String[] SRC_POSSIBLE_SUFFIXES = new String[]{ "-src", "-source", "-sources" };
-    
-    /**
-     * Suffixes list to search for javadoc archive files
-     */
-    private final static String[] JAVADOC_POSSIBLE_SUFFIXES = new String[]{ "-javadoc" };
-    
-    // use this string to represent the root project directory
-    public final static String ROOT_DIR = "-";
-    
-    // user-fiendly name for the container that shows on the UI
-    private String _desc;
-    // path string that uniquiely identifies this container instance
-    private IPath _path;
-    // directory that will hold files for inclusion in this container
-    private File _dir;
-    // Filename extensions to include in container
-    private HashSet<String> _exts;
-  
-    /**
-     * This filename filter will be used to determine which files
-     * will be included in the container 
-     */
-    private FilenameFilter _dirFilter = new FilenameFilter() {
-
-        /** 
-         * This File filter is used to filter files that are not in the configured 
-         * extension set.
-         * Also, filters out files that have the correct extension but end with 
-         * source/javadoc suffixes, since filenames with this pattern will be attached as 
-         * source/javadoc to the corresponding archive.
-         * 
-         * @see java.io.FilenameFilter#accept(java.io.File, java.lang.String)
-         */
-        public boolean accept(File dir, String name) {
-            // lets avoid including filenames that end with SRC_POSSIBLE_SUFFIXES since 
-            // we will use this as the convention for attaching source
-            String[] nameSegs = splitFileNameWithExtension(name);
-            
-            if(nameSegs.length != 2) {
-                return false;
-            }
-            // If given archive is a src or javadoc filename : filter it !
-            if(isSrcFilename(nameSegs[0]) || isJavadocFilename(nameSegs[0])) {
-                return false;
-            }            
-            // Accept file if and only if extension matches AND it isn't src/javadoc
-            if(_exts.contains(nameSegs[1].toLowerCase())) {
-                return true;
-            }           
-            return false;
-        }
-    };
-    
-    /**
-     * Will return true if given filename is special because it is source archive
-     * @param filenameWithoutExtension The filename to check, with extension truncated
-     * @return True if given filename is a special file corresponding to a source archive
-     */
-    private static final boolean isSrcFilename(String filenameWithoutExtension){
-    	return isSuffixedFilename(filenameWithoutExtension, SRC_POSSIBLE_SUFFIXES);
-    }
-    
-    /**
-     * Will return true if given filename is special because it is javadoc archive
-     * @param filenameWithoutExtension The filename to check, with extension truncated
-     * @return True if given filename is a special file corresponding to a javadoc archive
-     */
-    private static final boolean isJavadocFilename(String filenameWithoutExtension){
-    	return isSuffixedFilename(filenameWithoutExtension, JAVADOC_POSSIBLE_SUFFIXES);
-    }
-    
-    /**
-     * Will return true if given filename ends with at least one of the given suffixes
-     * @param filenameWithoutExtension Filename to test, with extension truncated
-     * @param possibleSuffixes A suffix array
-     * @return true if at least one of the suffixes match with filenameWithoutExtension
-     */
-    private static final boolean isSuffixedFilename(String filenameWithoutExtension, String[] possibleSuffixes){
-    	int i=0;
-    	while(i<possibleSuffixes.length && !filenameWithoutExtension.endsWith(possibleSuffixes[i])){
-    		i++;
-    	}
-    	
-    	return i != possibleSuffixes.length;
-    }
-    
-    /**
-     * This constructor uses the provided IPath and IJavaProject arguments to assign the 
-     * instance variables that are used for determining the classpath entries included 
-     * in this container.  The provided IPath comes from the classpath entry element in 
-     * project's .classpath file.  It is a three segment path with the following 
-     * segments:   
-     *   [0] - Unique container ID
-     *   [1] - project relative directory that this container will collect files from
-     *   [2] - comma separated list of extensions to include in this container 
-     *         (extensions do not include the preceding ".")    
-     * @param path unique path for this container instance, including directory  
-     *             and extensions a segments
-     * @param project the Java project that is referencing this container
-     */
-    public DirectoryContainer(IPath path, IJavaProject project) {
-        _path = path;
-        
-        // extract the extension types for this container from the path
-        String extString = path.lastSegment();
-        _exts = new HashSet<String>();
-        String[] extArray = extString.split(",");
-        for(String ext: extArray) {
-            _exts.add(ext.toLowerCase());
-        }
-        // extract the directory string from the PATH and create the directory relative 
-        // to the project
-        path = path.removeLastSegments(1).removeFirstSegments(1);   
-        File rootProj = project.getProject().getLocation().makeAbsolute().toFile(); 
-        if(path.segmentCount()==1 && path.segment(0).equals(ROOT_DIR)) {
-            _dir = rootProj;
-            path = path.removeFirstSegments(1);
-        } else {
-            _dir = new File(rootProj, path.toString());
-        }        
-        
-        // Create UI String for this container that reflects the directory being used
-        _desc = "/" + path + " Libraries";
-    }
-    
-    /**
-     * This method is used to determine if the directory specified 
-     * in the container path is valid, i.e. it exists relative to 
-     * the project and it is a directory. 
-     * 
-     * @return true if the configured directory is valid
-     */
-    public boolean isValid() {
-        if(_dir.exists() && _dir.isDirectory()) {
-            return true;
-        }
-        return false;
-    }
-    
-    /** 
-     * Returns a set of CPE_LIBRARY entries from the configured project directory 
-     * that conform to the configured set of file extensions and attaches a source 
-     * archive to the libraries entries if a file with same name ending with 
-     * -src is found in the directory. 
-     * 
-     * @see org.eclipse.jdt.core.IClasspathContainer#getClasspathEntries()
-     */
-    public IClasspathEntry[] getClasspathEntries() {
-        ArrayList<IClasspathEntry> entryList = new ArrayList<IClasspathEntry>();
-        // fetch the names of all files that match our filter
-        File[] libs = _dir.listFiles(_dirFilter);
-        for( File lib: libs ) {
-            // now see if this archive has an associated src jar
-            Path srcPath = null;
-            String srcAbsPath = retrieveSrcAbsPath(lib);
-            if(srcAbsPath != null){
-            	srcPath = new Path(srcAbsPath);
-            }
-
-            // now see if this archive has an associated javadoc jar
-            List<IClasspathAttribute> cpAttributes = new ArrayList<IClasspathAttribute>();
-            String javadocAbsPath = retrieveJavadocAbsPath(lib);
-            if(javadocAbsPath != null){
-            	cpAttributes.add(JavaCore.newClasspathAttribute(IClasspathAttribute.JAVADOC_LOCATION_ATTRIBUTE_NAME, javadocAbsPath));
-            }
-            
-            // create a new CPE_LIBRARY type of cp entry with an attached source 
-            // archive if it exists
-            entryList.add( JavaCore.newLibraryEntry( 
-                    new Path(lib.getAbsolutePath()) , srcPath, new Path("/"), 
-                    new IAccessRule[0], cpAttributes.toArray(new IClasspathAttribute[0]), false));                
-        }
-        // convert the list to an array and return it
-        IClasspathEntry[] entryArray = new IClasspathEntry[entryList.size()];
-        return (IClasspathEntry[])entryList.toArray(entryArray);
-    }
-    
-    /**
-     * Will return absolute path of an existing src file corresponding on given lib
-     * @param lib Lib to search source on
-     * @return null if no src file has been discovered, the absolute path of the source file
-     * otherwise
-     */
-    private String retrieveSrcAbsPath(File lib){
-    	return retrieveExistingAbsPath(lib, SRC_POSSIBLE_SUFFIXES);
-    }
-    
-    /**
-     * Will return absolute path of an existing javadoc file corresponding on given lib
-     * @param lib Lib to search javadoc on
-     * @return null if no javadoc file has been discovered, the absolute path of the javadoc file
-     * otherwise
-     */
-    private String retrieveJavadocAbsPath(File lib){
-    	return retrieveExistingAbsPath(lib, JAVADOC_POSSIBLE_SUFFIXES);
-    }
-    
-    /**
-     * Retrieves absolute path of a concatenation of possibleSuffixes on the given lib
-     * If not found, returns null
-     * @param lib The lib to start with
-     * @param possibleSuffixes An array of suffixes to concatenate with lib
-     * @return absolute path of an existing concatenation of possibleSuffixes on the given lib, null otherwise
-     */
-    private String retrieveExistingAbsPath(File lib, String[] possibleSuffixes){
-    	String[] splittedLibWithExtension = splitFileNameWithExtension(lib.getAbsolutePath());
-    	String absPath = null;
-    	int i=0;
-    	while(i<possibleSuffixes.length && absPath==null){
-    		
-    		Iterator<String> extIter = _exts.iterator();
-    		while(extIter.hasNext() && absPath==null){
-    			String ext = extIter.next();
-                File arc = new File(splittedLibWithExtension[0]+possibleSuffixes[i]+"."+ext);
-                // if the source archive exists then get the path to attach it
-                if( arc.exists()) {
-                    absPath = arc.getAbsolutePath();
-                }
-    		}
-    		
-    		i++;
-    	}
-    	
-    	return absPath;
-    }
-    
-    /**
-     * Split given filename in an array of two strings :
-     * [1] Filename extension part (right to last ".")
-     * [0] Filename left part to last "."
-     * If no "." is found, returns an array with the current filename string
-     * @param filename The filename to split
-     * @return If no "." is found in filename : new String[]{ filename }
-     * Otherwise : new String[]{ leftPart, extensionPart }
-     */
-    private static String[] splitFileNameWithExtension(String filename){
-    	int extensionPointIndex = filename.lastIndexOf(".");
-    	String[] splittedFilename = new String[]{ filename };
-    	if(extensionPointIndex != -1){
-    		splittedFilename = new String[]{ 
-    				filename.substring(0, extensionPointIndex), 
-    				filename.substring(extensionPointIndex+1) };
-    	}
-    	
-    	return splittedFilename;
-    }
-    
-    /**
-     * @see org.eclipse.jdt.core.IClasspathContainer#getDescription()
-     */
-    public String getDescription() {
-        return _desc;
-    }
-    
-    /**
-     * @see org.eclipse.jdt.core.IClasspathContainer#getKind()
-     */
-    public int getKind() {
-        return IClasspathContainer.K_APPLICATION;
-    }    
-    
-    /**
-     * @see org.eclipse.jdt.core.IClasspathContainer#getPath()
-     */
-    public IPath getPath() {
-        return _path;
-    }
-    
-    /**
-     * @return configured directory for this container
-     */
-    public File getDir() {
-        return _dir;
-    }
-    
-    /**
-     * @return whether or not this container would include the file
-     */
-    public boolean isContained(File file) {
-        if(file.getParentFile().equals(_dir)) {
-            // peel off file extension
-            String fExt = file.toString().substring(file.toString().lastIndexOf('.') + 1);
-            // check is it is in the set of cofigured extensions
-            if(_exts.contains(fExt.toLowerCase())) {
-                return true;
-            }
-        }        
-        return false;
-    }    
-}
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.osgi.util.NLS;
+
+import com.googlecode.eclipse.plugin.directorycpcontainer.api.ContainerOwner;
+
+/** 
+ * This classpath container add archive files from a configured project directory to the
+ * classpath as CPE_LIBRARY entries, and it attaches -src/-source/-sources archives as source attachments
+ * plus -javadoc javadoc attachments.  Other attachment locations can be contributed through 
+ * the attachmentResolvers extension point, see api.IAttachmentResolver.
+ * 
+ * Scan results are published as immutable ContainerSnapshot instances : readers get the 
+ * last published snapshot without locking, and concurrent callers needing a new scan 
+ * share a single in-progress scan rather than each listing the directory.
+ * 
+ * Scans, and the directory freshness checks deciding whether to scan, run on a background 
+ * thread and callers only wait for them up to a time budget (see SCAN_TIMEOUT_PROPERTY) 
+ * or, for the jobs resolving containers through getSnapshot, until their progress monitor 
+ * is cancelled.  JDT calls getClasspathEntries without a monitor : it is only bounded by 
+ * the time budget.  Past that, the last known good snapshot is used and the container is 
+ * marked stale until the scan completes, at which point JDT is handed a refreshed 
+ * container.
+ * 
+ * Optional behaviours are read from the container entry attributes, see ContainerOptions.
+ * 
+ * @author Frederic Camblor
+ */
+public class DirectoryContainer implements IClasspathContainer {
+    public final static Path ID = new Path("com.googlecode.eclipse.plugin.directorycpcontainer.DIR_CONTAINER");
+    
+    /**
+     * Suffixes list to search for sources archive files
+     */
+    final static String[] SRC_POSSIBLE_SUFFIXES = new String[]{ "-src", "-source", "-sources" };
+    
+    /**
+     * Suffixes list to search for javadoc archive files
+     */
+    final static String[] JAVADOC_POSSIBLE_SUFFIXES = new String[]{ "-javadoc" };
+    
+    // use this string to represent the root project directory
+    public final static String ROOT_DIR = "-";
+    
+    /**
+     * System property holding the maximum time (in ms) a caller waits for a directory scan
+     */
+    public final static String SCAN_TIMEOUT_PROPERTY = "com.googlecode.eclipse.plugin.directorycpcontainer.scanTimeout";
+    
+    // default maximum time (in ms) a caller waits for a directory scan
+    private final static long DEFAULT_SCAN_TIMEOUT = 5000;
+    
+    // interval (in ms) at which waiting callers check their progress monitor
+    private final static long CANCEL_POLL_INTERVAL = 100;
+    
+    // runs the directory scans, so that a hung file system only blocks a worker thread
+    private final static ExecutorService SCAN_EXECUTOR = Executors.newCachedThreadPool(
+            new DaemonThreadFactory("Directory Container scanner", Thread.NORM_PRIORITY));
+    
+    // user-fiendly name for the container that shows on the UI
+    private String _desc;
+    // path string that uniquiely identifies this container instance
+    private IPath _path;
+    // the Java project referencing this container
+    private IJavaProject _project;
+    // directory that will hold files for inclusion in this container
+    private File _dir;
+    // Filename extensions to include in container
+    private HashSet<String> _exts;
+    // optional behaviours configured on the container entry, as of the last scan task
+    private volatile ContainerOptions _options;
+    // last published scan result, null until the directory has been scanned once
+    private final AtomicReference<ContainerSnapshot> _snapshot = new AtomicReference<ContainerSnapshot>();
+    // scan in progress, shared by every caller that needs a fresh snapshot
+    private final AtomicReference<FutureTask<ContainerSnapshot>> _pendingScan = 
+        new AtomicReference<FutureTask<ContainerSnapshot>>();
+    // set when a caller had to fall back on an outdated snapshot
+    private final AtomicBoolean _stale = new AtomicBoolean();
+  
+    /**
+     * This filename filter will be used to determine which files
+     * will be included in the container 
+     */
+    private FilenameFilter _dirFilter = new FilenameFilter() {
+
+        /** 
+         * This File filter is used to filter files that are not in the configured 
+         * extension set.
+         * Also, filters out files that have the correct extension but end with 
+         * source/javadoc suffixes, since filenames with this pattern will be attached as 
+         * source/javadoc to the corresponding archive.
+         * 
+         * @see java.io.FilenameFilter#accept(java.io.File, java.lang.String)
+         */
+        public boolean accept(File dir, String name) {
+            // lets avoid including filenames that end with SRC_POSSIBLE_SUFFIXES since 
+            // we will use this as the convention for attaching source
+            String[] nameSegs = splitFileNameWithExtension(name);
+            
+            if(nameSegs.length != 2) {
+                return false;
+            }
+            // If given archive is a src or javadoc filename : filter it !
+            if(isSrcFilename(nameSegs[0]) || isJavadocFilename(nameSegs[0])) {
+                return false;
+            }            
+            // Accept file if and only if extension matches AND it isn't src/javadoc
+            if(_exts.contains(nameSegs[1].toLowerCase())) {
+                return true;
+            }           
+            return false;
+        }
+    };
+    
+    /**
+     * Will return true if given filename is special because it is source archive
+     * @param filenameWithoutExtension The filename to check, with extension truncated
+     * @return True if given filename is a special file corresponding to a source archive
+     */
+    static final boolean isSrcFilename(String filenameWithoutExtension){
+    	return isSuffixedFilename(filenameWithoutExtension, SRC_POSSIBLE_SUFFIXES);
+    }
+    
+    /**
+     * Will return true if given filename is special because it is javadoc archive
+     * @param filenameWithoutExtension The filename to check, with extension truncated
+     * @return True if given filename is a special file corresponding to a javadoc archive
+     */
+    static final boolean isJavadocFilename(String filenameWithoutExtension){
+    	return isSuffixedFilename(filenameWithoutExtension, JAVADOC_POSSIBLE_SUFFIXES);
+    }
+    
+    /**
+     * Will return true if given filename ends with at least one of the given suffixes
+     * @param filenameWithoutExtension Filename to test, with extension truncated
+     * @param possibleSuffixes A suffix array
+     * @return true if at least one of the suffixes match with filenameWithoutExtension
+     */
+    private static final boolean isSuffixedFilename(String filenameWithoutExtension, String[] possibleSuffixes){
+    	int i=0;
+    	while(i<possibleSuffixes.length && !filenameWithoutExtension.endsWith(possibleSuffixes[i])){
+    		i++;
+    	}
+    	
+    	return i != possibleSuffixes.length;
+    }
+    
+    /**
+     * This constructor uses the provided IPath and IJavaProject arguments to assign the 
+     * instance variables that are used for determining the classpath entries included 
+     * in this container.  The provided IPath comes from the classpath entry element in 
+     * project's .classpath file.  It is a three segment path with the following 
+     * segments:   
+     *   [0] - Unique container ID
+     *   [1] - project relative directory that this container will collect files from
+     *   [2] - comma separated list of extensions to include in this container 
+     *         (extensions do not include the preceding ".")    
+     * @param path unique path for this container instance, including directory  
+     *             and extensions a segments
+     * @param project the Java project that is referencing this container
+     */
+    public DirectoryContainer(IPath path, IJavaProject project) {
+        _path = path;
+        _project = project;
+        
+        // extract the extension types for this container from the path
+        String extString = path.lastSegment();
+        _exts = new HashSet<String>();
+        String[] extArray = extString.split(",");
+        for(String ext: extArray) {
+            _exts.add(ext.toLowerCase());
+        }
+        // extract the directory string from the PATH and create the directory relative 
+        // to the project
+        path = path.removeLastSegments(1).removeFirstSegments(1);   
+        File rootProj = project.getProject().getLocation().makeAbsolute().toFile(); 
+        if(path.segmentCount()==1 && path.segment(0).equals(ROOT_DIR)) {
+            _dir = rootProj;
+            path = path.removeFirstSegments(1);
+        } else {
+            _dir = new File(rootProj, path.toString());
+        }        
+        
+        // Create UI String for this container that reflects the directory being used
+        _desc = "/" + path + " Libraries";
+    }
+    
+    /**
+     * This method is used to determine if the directory specified 
+     * in the container path is valid, i.e. it exists relative to 
+     * the project and it is a directory. 
+     * 
+     * @return true if the configured directory is valid
+     */
+    public boolean isValid() {
+        // a stale container may just be waiting for a slow file system : keep it
+        return getSnapshot(null).isValid() || isStale();
+    }
+    
+    /**
+     * @return true if the entries of this container may be outdated because the last 
+     * directory scan did not complete in time
+     */
+    public boolean isStale() {
+        return _stale.get();
+    }
+    
+    /** 
+     * Returns a set of CPE_LIBRARY entries from the configured project directory 
+     * that conform to the configured set of file extensions and attaches a source 
+     * archive to the libraries entries if a file with same name ending with 
+     * -src is found in the directory. 
+     * 
+     * @see org.eclipse.jdt.core.IClasspathContainer#getClasspathEntries()
+     */
+    public IClasspathEntry[] getClasspathEntries() {
+        return getSnapshot(null).getEntries();
+    }
+    
+    /**
+     * Returns the current snapshot of the directory, rescanning it if it has been 
+     * modified since the last published snapshot.  Even checking the directory may hang 
+     * on an unresponsive file system, so it is done by the scan task as well.  If another 
+     * thread is already checking or rescanning, the last published snapshot is returned 
+     * rather than waiting for it; callers only wait when nothing has been published yet.
+     * 
+     * Waiting is bounded by the scan time budget and by the monitor cancellation.  When 
+     * either is hit, the last published snapshot is returned and the container is marked 
+     * stale.  If nothing has been published yet, an empty snapshot is published in the 
+     * meantime.
+     * 
+     * @param monitor the progress monitor to check for cancellation, may be null
+     * @return the current snapshot of the directory
+     */
+    public ContainerSnapshot getSnapshot(IProgressMonitor monitor) {
+        ContainerSnapshot current = _snapshot.get();
+        FutureTask<ContainerSnapshot> scan = _pendingScan.get();
+        if(scan != null && current != null) {
+            // somebody else is refreshing : don't block on it
+            return current;
+        }
+        boolean leader = false;
+        if(scan == null) {
+            FutureTask<ContainerSnapshot> newScan = newScanTask();
+            if(_pendingScan.compareAndSet(null, newScan)) {
+                // we are the single flight
+                SCAN_EXECUTOR.execute(newScan);
+                scan = newScan;
+                leader = true;
+            } else {
+                // lost the race, join the winner's scan (or take what it published)
+                scan = _pendingScan.get();
+                if(scan == null) {
+                    return getSnapshot(monitor);
+                }
+            }
+        }
+        return awaitScan(scan, current, leader, monitor == null ? new NullProgressMonitor() : monitor);
+    }
+    
+    /**
+     * Stops the directory scanning threads, when the bundle stops
+     */
+    static void shutdown() {
+        SCAN_EXECUTOR.shutdownNow();
+    }
+    
+    /**
+     * Creates the task scanning the directory, unless the published snapshot is still 
+     * up to date, and publishing the result.  The options are read again from the 
+     * container entry each time : toggling one only changes the entry attributes, JDT 
+     * keeps using this container instance.  The task unregisters itself as the pending 
+     * scan once done, and hands a refreshed container to JDT if callers had to fall back 
+     * on an outdated snapshot in the meantime.
+     */
+    private FutureTask<ContainerSnapshot> newScanTask() {
+        return new FutureTask<ContainerSnapshot>(new Callable<ContainerSnapshot>() {
+            public ContainerSnapshot call() {
+                ContainerOptions options = ContainerOptions.lookup(_path, _project);
+                // no options yet means the snapshot was handed over with its options
+                boolean optionsChanged = _options != null && !options.equals(_options);
+                _options = options;
+                ContainerSnapshot current = _snapshot.get();
+                if(current != null && !optionsChanged && current.isUpToDate(_dir)) {
+                    if(_stale.getAndSet(false)) {
+                        scheduleRefresh(current);
+                    }
+                    return current;
+                }
+                ContainerSnapshot snapshot = scanDirectory();
+                ContainerSnapshot previous = _snapshot.getAndSet(snapshot);
+                DirectoryContainerIndex.getDefault().publish(
+                        new ContainerOwner(_project.getElementName(), _path), snapshot.getEntries());
+                if(_options.isEnabled(ContainerOptions.PREFETCH)) {
+                    ArchivePrefetcher.prefetch(getAddedLibraries(previous, snapshot));
+                }
+                if(_options.isEnabled(ContainerOptions.CLASS_INDEX)) {
+                    scheduleClassIndexUpdate(snapshot);
+                }
+                if(_stale.getAndSet(false)) {
+                    scheduleRefresh(snapshot);
+                }
+                return snapshot;
+            }
+        }) {
+            @Override
+            protected void done() {
+                _pendingScan.compareAndSet(this, null);
+            }
+        };
+    }
+    
+    /**
+     * @param previous the previously published snapshot, may be null
+     * @param snapshot the newly published snapshot
+     * @return the libraries of the new snapshot that were not in the previous one
+     */
+    private static List<File> getAddedLibraries(ContainerSnapshot previous, ContainerSnapshot snapshot) {
+        Set<IPath> previousPaths = new HashSet<IPath>();
+        if(previous != null) {
+            for(IClasspathEntry entry: previous.getEntries()) {
+                previousPaths.add(entry.getPath());
+            }
+        }
+        List<File> added = new ArrayList<File>();
+        for(IClasspathEntry entry: snapshot.getEntries()) {
+            if(!previousPaths.contains(entry.getPath())) {
+                added.add(entry.getPath().toFile());
+            }
+        }
+        return added;
+    }
+    
+    /**
+     * Waits for the given scan and returns its result, within the scan time budget
+     * 
+     * @param scan the scan to wait for
+     * @param fallback last known good snapshot, may be null
+     * @param leader whether the caller started the scan, in which case cancelling the 
+     *               monitor also cancels the scan
+     * @param monitor the progress monitor to check for cancellation
+     * @return the scan result, or the fallback if it could not be obtained in time
+     */
+    private ContainerSnapshot awaitScan(FutureTask<ContainerSnapshot> scan, ContainerSnapshot fallback, 
+            boolean leader, IProgressMonitor monitor) {
+        long deadline = System.currentTimeMillis() + getScanTimeout();
+        try {
+            while(true) {
+                if(monitor.isCanceled()) {
+                    if(leader) {
+                        scan.cancel(true);
+                    }
+                    break;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if(remaining <= 0) {
+                    Logger.log(Logger.WARNING, NLS.bind(Messages.ScanTimeout, _dir, Long.valueOf(getScanTimeout())));
+                    break;
+                }
+                try {
+                    return scan.get(Math.min(remaining, CANCEL_POLL_INTERVAL), TimeUnit.MILLISECONDS);
+                } catch(TimeoutException e) {
+                    // check the monitor and the deadline again
+                }
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(CancellationException e) {
+            // cancelled by the scan leader
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(!(cause instanceof OperationCanceledException)) {
+                Logger.log(Logger.ERROR, cause);
+            }
+        }
+        
+        _stale.set(true);
+        // the scan may have published right before we flagged the container : in that 
+        // case it did not see the flag, so use its result directly
+        ContainerSnapshot published = _snapshot.get();
+        if(published != null && published != fallback) {
+            _stale.set(false);
+            return published;
+        }
+        if(fallback != null) {
+            return fallback;
+        }
+        // publish an empty snapshot, so that later callers don't wait for the hung scan 
+        // again : it is replaced as soon as the scan completes
+        ContainerSnapshot empty = new ContainerSnapshot(new IClasspathEntry[0], 0L, 0L, false);
+        if(_snapshot.compareAndSet(null, empty)) {
+            return empty;
+        }
+        return _snapshot.get();
+    }
+    
+    /**
+     * Hands JDT a new container instance holding the given snapshot, so that a scan 
+     * completing after its callers gave up still reaches the project classpath
+     */
+    private void scheduleRefresh(final ContainerSnapshot snapshot) {
+        Job job = new Job(NLS.bind(Messages.RefreshJob, _desc)) {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                DirectoryContainer refreshed = new DirectoryContainer(_path, _project);
+                refreshed._options = _options;
+                refreshed._snapshot.set(snapshot);
+                try {
+                    JavaCore.setClasspathContainer(_path, new IJavaProject[] { _project }, 
+                            new IClasspathContainer[] { refreshed }, monitor);
+                } catch(JavaModelException e) {
+                    return e.getStatus();
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.schedule();
+    }
+    
+    /**
+     * Brings the class index of this container up to date with the given snapshot in the 
+     * background, and reports the conflicts it finds to the error log.  Updates of the 
+     * same index file, e.g. from a refreshed instance of this container, are serialized.
+     */
+    private void scheduleClassIndexUpdate(final ContainerSnapshot snapshot) {
+        final File indexFile = getClassIndexFile();
+        Job job = new Job(NLS.bind(Messages.ClassIndexJob, _desc)) {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                List<File> libs = new ArrayList<File>();
+                for(IClasspathEntry entry: snapshot.getEntries()) {
+                    libs.add(entry.getPath().toFile());
+                }
+                ClassIndex index = ClassIndex.update(indexFile, libs);
+                if(index != null) {
+                    int splitPackages = index.getSplitPackages().size();
+                    int shadowedClasses = index.getShadowedClasses().size();
+                    if(splitPackages + shadowedClasses > 0) {
+                        Logger.log(Logger.WARNING, NLS.bind(Messages.ClassIndexConflicts, new Object[] { 
+                                _desc, Integer.valueOf(splitPackages), Integer.valueOf(shadowedClasses) }));
+                    }
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+        job.setRule(new IndexFileRule(indexFile));
+        job.schedule();
+    }
+    
+    /**
+     * @return the file holding the class index of this container, in the plug-in state 
+     * location
+     */
+    public File getClassIndexFile() {
+        String name = _project.getElementName().replaceAll("[^\\w.-]", "_") 
+            + "-" + Integer.toHexString(_path.toString().hashCode()) + ".idx";
+        return Platform.getStateLocation(Platform.getBundle(Logger.PLUGIN_ID))
+            .append("classindex").append(name).toFile();
+    }
+    
+    /**
+     * @return the maximum time (in ms) a caller waits for a directory scan
+     */
+    private static long getScanTimeout() {
+        return Long.getLong(SCAN_TIMEOUT_PROPERTY, DEFAULT_SCAN_TIMEOUT).longValue();
+    }
+    
+    /**
+     * Lists the configured directory and resolves the classpath entries, attaching 
+     * source and javadoc archives found next to each library.
+     * 
+     * @return a new snapshot of the directory
+     */
+    private ContainerSnapshot scanDirectory() {
+        // take the timestamp first, so that a change made during the listing triggers 
+        // another scan
+        long scanTime = System.currentTimeMillis();
+        long dirTimestamp = _dir.lastModified();
+        ContainerLockfile lockfile = null;
+        // extracted nested jars live in the workspace state location : they can't be locked
+        if(_options.isEnabled(ContainerOptions.LOCKFILE) && !_options.isEnabled(ContainerOptions.EXTRACT_NESTED)) {
+            lockfile = new ContainerLockfile(_dir, _exts, _options.isEnabled(ContainerOptions.MANIFEST_CLASSPATH));
+            IClasspathEntry[] lockedEntries = lockfile.load();
+            if(lockedEntries != null) {
+                return new ContainerSnapshot(lockedEntries, dirTimestamp, scanTime, true);
+            }
+        }
+        ArrayList<IClasspathEntry> entryList = new ArrayList<IClasspathEntry>();
+        // fetch the names of all files that match our filter
+        File[] libs = _dir.listFiles(_dirFilter);
+        if(libs == null) {
+            // not a directory (any more), or an I/O error occured
+            return new ContainerSnapshot(new IClasspathEntry[0], dirTimestamp, scanTime, false);
+        }
+        List<File> libList = Arrays.asList(libs);
+        if(_options.isEnabled(ContainerOptions.EXTRACT_NESTED)) {
+            // publish the jars of distribution zips rather than the zips themselves
+            libList = NestedArchiveCache.expand(libList);
+        }
+        for( File lib: libList ) {
+            checkCanceled();
+            entryList.add(newLibraryEntry(lib));
+        }
+        if(_options.isEnabled(ContainerOptions.MANIFEST_CLASSPATH)) {
+            // add the archives the libraries manifests reference, when not already there
+            for( File referenced: ManifestClassPathResolver.expand(libList) ) {
+                checkCanceled();
+                entryList.add(newLibraryEntry(referenced));
+            }
+        }
+        // convert the list to an array and publish it
+        IClasspathEntry[] entryArray = entryList.toArray(new IClasspathEntry[entryList.size()]);
+        if(lockfile != null) {
+            boolean unchanged = _dir.lastModified() == dirTimestamp;
+            lockfile.write(entryArray);
+            if(unchanged) {
+                // don't let our own lockfile write trigger another scan
+                dirTimestamp = _dir.lastModified();
+            }
+        }
+        return new ContainerSnapshot(entryArray, dirTimestamp, scanTime, true);
+    }
+    
+    /**
+     * Creates the CPE_LIBRARY entry of an archive, with its source and javadoc 
+     * attachments if they are found next to it
+     */
+    private IClasspathEntry newLibraryEntry(File lib) {
+        // now see if this archive has an associated src jar
+        Path srcPath = null;
+        String srcAbsPath = retrieveSrcAbsPath(lib);
+        if(srcAbsPath != null){
+        	srcPath = new Path(srcAbsPath);
+        }
+
+        // now see if this archive has an associated javadoc jar
+        List<IClasspathAttribute> cpAttributes = new ArrayList<IClasspathAttribute>();
+        String javadocAbsPath = retrieveJavadocAbsPath(lib);
+        if(javadocAbsPath != null){
+        	cpAttributes.add(JavaCore.newClasspathAttribute(IClasspathAttribute.JAVADOC_LOCATION_ATTRIBUTE_NAME, javadocAbsPath));
+        }
+        
+        // create a new CPE_LIBRARY type of cp entry with an attached source 
+        // archive if it exists
+        return JavaCore.newLibraryEntry( 
+                new Path(lib.getAbsolutePath()) , srcPath, new Path("/"), 
+                new IAccessRule[0], cpAttributes.toArray(new IClasspathAttribute[0]), false);
+    }
+    
+    /**
+     * Aborts the running scan if its thread has been interrupted by a cancellation
+     * 
+     * @throws OperationCanceledException if the scan has been cancelled
+     */
+    static void checkCanceled() {
+        if(Thread.currentThread().isInterrupted()) {
+            throw new OperationCanceledException();
+        }
+    }
+    
+    /**
+     * Will return absolute path of an existing src file corresponding on given lib
+     * @param lib Lib to search source on
+     * @return null if no src file has been discovered, the absolute path of the source file
+     * otherwise
+     */
+    private String retrieveSrcAbsPath(File lib){
+    	return AttachmentResolvers.resolveSource(lib, _exts);
+    }
+    
+    /**
+     * Will return absolute path of an existing javadoc file corresponding on given lib
+     * @param lib Lib to search javadoc on
+     * @return null if no javadoc file has been discovered, the absolute path of the javadoc file
+     * otherwise
+     */
+    private String retrieveJavadocAbsPath(File lib){
+    	return AttachmentResolvers.resolveJavadoc(lib, _exts);
+    }
+    
+    /**
+     * Split given filename in an array of two strings :
+     * [1] Filename extension part (right to last ".")
+     * [0] Filename left part to last "."
+     * If no "." is found, returns an array with the current filename string
+     * @param filename The filename to split
+     * @return If no "." is found in filename : new String[]{ filename }
+     * Otherwise : new String[]{ leftPart, extensionPart }
+     */
+    static String[] splitFileNameWithExtension(String filename){
+    	int extensionPointIndex = filename.lastIndexOf(".");
+    	String[] splittedFilename = new String[]{ filename };
+    	if(extensionPointIndex != -1){
+    		splittedFilename = new String[]{ 
+    				filename.substring(0, extensionPointIndex), 
+    				filename.substring(extensionPointIndex+1) };
+    	}
+    	
+    	return splittedFilename;
+    }
+    
+    /**
+     * @see org.eclipse.jdt.core.IClasspathContainer#getDescription()
+     */
+    public String getDescription() {
+        if(isStale()) {
+            return _desc + Messages.StaleDesc;
+        }
+        return _desc;
+    }
+    
+    /**
+     * @see org.eclipse.jdt.core.IClasspathContainer#getKind()
+     */
+    public int getKind() {
+        return IClasspathContainer.K_APPLICATION;
+    }    
+    
+    /**
+     * @see org.eclipse.jdt.core.IClasspathContainer#getPath()
+     */
+    public IPath getPath() {
+        return _path;
+    }
+    
+    /**
+     * @return configured directory for this container
+     */
+    public File getDir() {
+        return _dir;
+    }
+    
+    /**
+     * @return whether or not this container would include the file
+     */
+    public boolean isContained(File file) {
+        if(file.getParentFile().equals(_dir)) {
+            // peel off file extension
+            String fExt = file.toString().substring(file.toString().lastIndexOf('.') + 1);
+            // check is it is in the set of cofigured extensions
+            if(_exts.contains(fExt.toLowerCase())) {
+                return true;
+            }
+        }        
+        return false;
+    }    
+    
+    /**
+     * Scheduling rule of the jobs writing a class index file, conflicting with the jobs 
+     * writing the same file
+     */
+    private static class IndexFileRule implements ISchedulingRule {
+        private final File indexFile;
+        
+        private IndexFileRule(File indexFile) {
+            this.indexFile = indexFile;
+        }
+        
+        public boolean contains(ISchedulingRule rule) {
+            return rule == this;
+        }
+        
+        public boolean isConflicting(ISchedulingRule rule) {
+            return rule instanceof IndexFileRule && ((IndexFileRule)rule).indexFile.equals(indexFile);
+        }
+    }
+}
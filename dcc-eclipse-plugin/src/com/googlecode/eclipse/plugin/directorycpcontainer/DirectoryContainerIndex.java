@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+
+import com.googlecode.eclipse.plugin.directorycpcontainer.api.ContainerOwner;
+import com.googlecode.eclipse.plugin.directorycpcontainer.api.IContainerIndex;
+
+/**
+ * Default IContainerIndex implementation.  Lookups are a single concurrent hash map 
+ * access; updates, which only happen when a container publishes a snapshot, a project 
+ * goes away or its classpath changes, are serialized and replace the owner arrays they touch.
+ * 
+ * @author Frederic Camblor
+ */
+public class DirectoryContainerIndex implements IContainerIndex {
+    
+    private final static DirectoryContainerIndex INSTANCE = new DirectoryContainerIndex();
+    
+    private final static ContainerOwner[] NO_OWNER = new ContainerOwner[0];
+    
+    // owners of each archive, by absolute archive path
+    private final Map<String, ContainerOwner[]> _owners = new ConcurrentHashMap<String, ContainerOwner[]>();
+    // archive paths last published by each container, used to remove them on the next update
+    private final Map<ContainerOwner, Set<String>> _published = new HashMap<ContainerOwner, Set<String>>();
+    
+    /**
+     * @return the workspace index
+     */
+    public static DirectoryContainerIndex getDefault() {
+        return INSTANCE;
+    }
+    
+    /**
+     * @see com.googlecode.eclipse.plugin.directorycpcontainer.api.IContainerIndex#getOwners(java.io.File)
+     */
+    public ContainerOwner[] getOwners(File file) {
+        ContainerOwner[] owners = _owners.get(file.getAbsolutePath());
+        if(owners == null) {
+            return NO_OWNER;
+        }
+        return owners.clone();
+    }
+    
+    /**
+     * @see com.googlecode.eclipse.plugin.directorycpcontainer.api.IContainerIndex#isContained(org.eclipse.core.resources.IProject, java.io.File)
+     */
+    public boolean isContained(IProject project, File file) {
+        ContainerOwner[] owners = _owners.get(file.getAbsolutePath());
+        if(owners != null) {
+            for(ContainerOwner owner: owners) {
+                if(owner.getProjectName().equals(project.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Replaces the archives supplied by a container with the libraries and attachments 
+     * of the given entries
+     * 
+     * @param owner the container publishing new entries
+     * @param entries the new container entries
+     */
+    public synchronized void publish(ContainerOwner owner, IClasspathEntry[] entries) {
+        Set<String> paths = new HashSet<String>();
+        for(IClasspathEntry entry: entries) {
+            paths.add(entry.getPath().toFile().getAbsolutePath());
+            if(entry.getSourceAttachmentPath() != null) {
+                paths.add(entry.getSourceAttachmentPath().toFile().getAbsolutePath());
+            }
+            for(IClasspathAttribute attribute: entry.getExtraAttributes()) {
+                if(IClasspathAttribute.JAVADOC_LOCATION_ATTRIBUTE_NAME.equals(attribute.getName())) {
+                    paths.add(new File(attribute.getValue()).getAbsolutePath());
+                }
+            }
+        }
+        
+        Set<String> previous = _published.put(owner, paths);
+        if(previous != null) {
+            for(String path: previous) {
+                if(!paths.contains(path)) {
+                    removeOwner(path, owner);
+                }
+            }
+        }
+        for(String path: paths) {
+            if(previous == null || !previous.contains(path)) {
+                addOwner(path, owner);
+            }
+        }
+    }
+    
+    /**
+     * @return the containers that published entries to the index
+     */
+    public synchronized List<ContainerOwner> getContainers() {
+        return new ArrayList<ContainerOwner>(_published.keySet());
+    }
+    
+    /**
+     * Forgets every container of the given project
+     * 
+     * @param projectName name of a closed or deleted project
+     */
+    public synchronized void removeProject(String projectName) {
+        Iterator<Map.Entry<ContainerOwner, Set<String>>> iter = _published.entrySet().iterator();
+        while(iter.hasNext()) {
+            Map.Entry<ContainerOwner, Set<String>> published = iter.next();
+            if(published.getKey().getProjectName().equals(projectName)) {
+                for(String path: published.getValue()) {
+                    removeOwner(path, published.getKey());
+                }
+                iter.remove();
+            }
+        }
+    }
+    
+    /**
+     * Forgets the containers of the given project that are no longer on its classpath, 
+     * either removed or with a new path
+     * 
+     * @param projectName name of a project whose classpath changed
+     * @param containerPaths paths of the containers on its raw classpath
+     */
+    public synchronized void retainContainers(String projectName, Set<IPath> containerPaths) {
+        Iterator<Map.Entry<ContainerOwner, Set<String>>> iter = _published.entrySet().iterator();
+        while(iter.hasNext()) {
+            Map.Entry<ContainerOwner, Set<String>> published = iter.next();
+            ContainerOwner owner = published.getKey();
+            if(owner.getProjectName().equals(projectName) && !containerPaths.contains(owner.getContainerPath())) {
+                for(String path: published.getValue()) {
+                    removeOwner(path, owner);
+                }
+                iter.remove();
+            }
+        }
+    }
+    
+    private void addOwner(String path, ContainerOwner owner) {
+        ContainerOwner[] owners = _owners.get(path);
+        if(owners == null) {
+            _owners.put(path, new ContainerOwner[] { owner });
+        } else {
+            ContainerOwner[] newOwners = new ContainerOwner[owners.length + 1];
+            System.arraycopy(owners, 0, newOwners, 0, owners.length);
+            newOwners[owners.length] = owner;
+            _owners.put(path, newOwners);
+        }
+    }
+    
+    private void removeOwner(String path, ContainerOwner owner) {
+        ContainerOwner[] owners = _owners.get(path);
+        if(owners == null) {
+            return;
+        }
+        List<ContainerOwner> remaining = new ArrayList<ContainerOwner>(owners.length);
+        for(ContainerOwner o: owners) {
+            if(!o.equals(owner)) {
+                remaining.add(o);
+            }
+        }
+        if(remaining.isEmpty()) {
+            _owners.remove(path);
+        } else {
+            _owners.put(path, remaining.toArray(new ContainerOwner[remaining.size()]));
+        }
+    }
+}
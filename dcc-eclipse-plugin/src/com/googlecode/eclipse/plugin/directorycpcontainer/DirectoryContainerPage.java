@@ -1,275 +1,383 @@
-/*
- * Copyright (c) 1998, Regents of the University of California
- * All rights reserved.
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- *
- *     * Redistributions of source code must retain the above copyright
- *       notice, this list of conditions and the following disclaimer.
- *     * Redistributions in binary form must reproduce the above copyright
- *       notice, this list of conditions and the following disclaimer in the
- *       documentation and/or other materials provided with the distribution.
- *     * Neither the name of the University of California, Berkeley nor the
- *       names of its contributors may be used to endorse or promote products
- *       derived from this software without specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
- * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
- * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
- * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
- * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
- * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
- * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
- */
-package com.googlecode.eclipse.plugin.directorycpcontainer;
-
-import org.eclipse.core.runtime.IPath;
-import org.eclipse.core.runtime.Path;
-import org.eclipse.jdt.core.IClasspathEntry;
-import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.JavaCore;
-import org.eclipse.jdt.ui.wizards.IClasspathContainerPage;
-import org.eclipse.jdt.ui.wizards.IClasspathContainerPageExtension;
-import org.eclipse.jface.wizard.WizardPage;
-import org.eclipse.osgi.util.NLS;
-import org.eclipse.swt.SWT;
-import org.eclipse.swt.events.SelectionAdapter;
-import org.eclipse.swt.events.SelectionEvent;
-import org.eclipse.swt.layout.GridData;
-import org.eclipse.swt.layout.GridLayout;
-import org.eclipse.swt.widgets.Button;
-import org.eclipse.swt.widgets.Combo;
-import org.eclipse.swt.widgets.Composite;
-import org.eclipse.swt.widgets.DirectoryDialog;
-import org.eclipse.swt.widgets.Label;
-import org.eclipse.swt.widgets.Text;
-
-/**
- * This classpath container page colects the directory and the file extensions for a new 
- * or existing DirectoryContainer.  
- * 
- * @author Frederic Camblor
- */
-public class DirectoryContainerPage extends WizardPage 
-               implements IClasspathContainerPage, IClasspathContainerPageExtension {
-
-    private final static String DEFAULT_EXTS = "jar,zip";
-    
-    private IJavaProject _proj;
-    private Combo _dirCombo;
-    private Button _dirBrowseButton;
-    private Text _extText;
-    private IPath _initPath = null;
-
-    /**
-     * Default Constructor - sets title, page name, description
-     */
-    public DirectoryContainerPage() {
-        super(Messages.PageName, Messages.PageTitle, null);
-        setDescription(Messages.PageDesc);
-        setPageComplete(true);
-    }
-    
-    
-    /**
-     * @see org.eclipse.jdt.ui.wizards.IClasspathContainerPageExtension#initialize(org.eclipse.jdt.core.IJavaProject, org.eclipse.jdt.core.IClasspathEntry[])
-     */
-    public void initialize(IJavaProject project, IClasspathEntry[] currentEntries) {
-        _proj = project;
-    }
-    
-    /**
-     * @see org.eclipse.jface.dialogs.IDialogPage#createControl(org.eclipse.swt.widgets.Composite)
-     */
-    public void createControl(Composite parent) {
-        Composite composite = new Composite(parent, SWT.NULL);
-        composite.setLayout(new GridLayout());
-        composite.setLayoutData(new GridData(GridData.VERTICAL_ALIGN_FILL
-                | GridData.HORIZONTAL_ALIGN_FILL));
-        composite.setFont(parent.getFont());
-        
-        createDirGroup(composite);
-        
-        createExtGroup(composite);
-        
-        setControl(composite);    
-    }
-    
-    /**
-     * Creates the directory label, combo, and browse button
-     * 
-     * @param parent the parent widget
-     */
-    private void createDirGroup(Composite parent) {
-        Composite dirSelectionGroup = new Composite(parent, SWT.NONE);
-        GridLayout layout= new GridLayout();
-        layout.numColumns = 3;
-        dirSelectionGroup.setLayout(layout);
-        dirSelectionGroup.setLayoutData(new GridData(GridData.GRAB_HORIZONTAL| GridData.VERTICAL_ALIGN_FILL));
-
-        new Label(dirSelectionGroup, SWT.NONE).setText(Messages.DirLabel);
-
-        _dirCombo = new Combo(dirSelectionGroup, SWT.SINGLE | SWT.BORDER);
-        _dirCombo.setText( getInitDir() );                
-
-        _dirBrowseButton= new Button(dirSelectionGroup, SWT.PUSH);
-        _dirBrowseButton.setText( Messages.Browse ); 
-        _dirBrowseButton.setLayoutData(new GridData(GridData.HORIZONTAL_ALIGN_FILL));
-        _dirBrowseButton.addSelectionListener(new SelectionAdapter() {
-            public void widgetSelected(SelectionEvent e) {
-                handleDirBrowseButtonPressed();
-           }
-        });    
-        setControl(dirSelectionGroup);
-    }
-    
-    /**
-     * Creates the extensions label and text box
-     * 
-     * @param parent parent widget
-     */
-    private void createExtGroup(Composite parent) {
-        Composite extSelectionGroup = new Composite(parent, SWT.NONE);
-        GridLayout layout= new GridLayout();
-        layout.numColumns = 2;
-        extSelectionGroup.setLayout(layout);
-        extSelectionGroup.setLayoutData(new GridData(GridData.GRAB_HORIZONTAL| GridData.VERTICAL_ALIGN_FILL));
-
-        new Label(extSelectionGroup, SWT.NONE).setText(Messages.ExtLabel);
-        
-        _extText = new Text(extSelectionGroup,SWT.BORDER);
-        _extText.setText(getInitExts());
-
-        setControl(extSelectionGroup);
-    }
-    
-    /**
-     * Creates a directory dialog 
-     */
-    protected void handleDirBrowseButtonPressed() {
-        DirectoryDialog dialog = new DirectoryDialog(getContainer().getShell(), SWT.SAVE);
-        dialog.setMessage(Messages.DirSelect);
-        dialog.setFilterPath(getDirValue());
-        String dir = dialog.open();
-        if (dir != null) {
-            _dirCombo.setText(dir);            
-        }            
-    }
-    
-    /**
-     * Extracts the initial directory value from a path passed in setSelection()
-     * 
-     * @return the inital directory value
-     */
-    private String getInitDir() {
-        String projDir = _proj.getProject().getLocation().toString();
-        if(_initPath != null && _initPath.segmentCount() > 1 ) {
-            return projDir + IPath.SEPARATOR + _initPath.segment(1);
-        }
-        // else
-        return projDir;
-        
-    }
-    
-    /**
-     * Extracts the initial extensions list from a path passed in setSelection()
-     * 
-     * @return the intial comma separated list of extensions
-     */
-    private String getInitExts() {
-        if(_initPath != null && _initPath.segmentCount() > 2 ) {
-            return _initPath.segment(2);
-        }
-        // else 
-        return DEFAULT_EXTS;
-    }
-        
-    /**
-     * @return the current extension list
-     */
-    protected String getExtValue() {
-        return _extText.getText().trim().toLowerCase();
-    }
-    
-    /**
-     * @return the current directory
-     */
-    protected String getDirValue() {
-        return _dirCombo.getText();
-    }
-    
-    /**
-     * @return directory relative to the parent project
-     */
-    protected String getRelativeDirValue() {
-        int projDirLen = _proj.getProject().getLocation().toString().length();
-        return getDirValue().substring( projDirLen );
-    }
-    
-    /**
-     * Checks that the directory is a subdirectory of the project being configured
-     * 
-     * @param dir a directory to validate
-     * @return true if the directory is valid
-     */
-    private boolean isDirValid(String dir) {
-        Path dirPath = new Path(dir);
-        return _proj.getProject().getLocation().makeAbsolute().isPrefixOf(dirPath);
-    }
-    
-    /**
-     * Checks that the list of comma separated extensions are valid.  Must meet the 
-     * following:
-     *  - non-null and non-empty
-     *  - match the regex [a-z_][a-z_,]*
-     * 
-     * @param exts comma separated list of extensions
-     * @return true if the extension list is valid
-     */
-    private boolean areExtsValid(String exts) {
-        if(exts==null || exts.equals("")) {
-            return false;
-        }        
-        //else
-        return exts.matches("[a-z_][a-z_,]*");
-    }
-    
-    /**
-     * @see org.eclipse.jdt.ui.wizards.IClasspathContainerPage#finish()
-     */
-    public boolean finish() {
-        if(!areExtsValid(getExtValue())) {
-            setErrorMessage(Messages.ExtErr);
-            return false;    
-        } else if(!isDirValid(getDirValue())) {
-            setErrorMessage( NLS.bind(Messages.DirErr, _proj.getProject().getName()));            
-            return false;
-        }        
-        return true;        
-    }
-
-    /**
-     * @see org.eclipse.jdt.ui.wizards.IClasspathContainerPage#getSelection()
-     */
-    public IClasspathEntry getSelection() {
-        String dir = getRelativeDirValue();
-        if(dir.equals("")) {
-            dir = DirectoryContainer.ROOT_DIR;
-        }
-        IPath containerPath = DirectoryContainer.ID.append( "/" + dir + "/" + 
-                                                                   getExtValue());
-        return JavaCore.newContainerEntry(containerPath);
-    }
-
-    /**
-     * @see org.eclipse.jdt.ui.wizards.IClasspathContainerPage#setSelection(org.eclipse.jdt.core.IClasspathEntry)
-     */
-    public void setSelection(IClasspathEntry containerEntry) {
-        if(containerEntry != null) {
-            _initPath = containerEntry.getPath();
-        }        
-    }    
-}
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.ui.wizards.IClasspathContainerPage;
+import org.eclipse.jdt.ui.wizards.IClasspathContainerPageExtension;
+import org.eclipse.jface.wizard.WizardPage;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * This classpath container page colects the directory and the file extensions for a new 
+ * or existing DirectoryContainer.  
+ * 
+ * @author Frederic Camblor
+ */
+public class DirectoryContainerPage extends WizardPage 
+               implements IClasspathContainerPage, IClasspathContainerPageExtension {
+
+    private final static String DEFAULT_EXTS = "jar,zip";
+    // maximum number of class index conflicts shown
+    private final static int MAX_CONFLICTS = 200;
+    
+    private IJavaProject _proj;
+    private Combo _dirCombo;
+    private Button _dirBrowseButton;
+    private Text _extText;
+    private IPath _initPath = null;
+    private ContainerOptions _initOptions = new ContainerOptions(new IClasspathAttribute[0]);
+    // option check boxes, by option attribute name
+    private Map<String, Button> _optionButtons = new LinkedHashMap<String, Button>();
+
+    /**
+     * Default Constructor - sets title, page name, description
+     */
+    public DirectoryContainerPage() {
+        super(Messages.PageName, Messages.PageTitle, null);
+        setDescription(Messages.PageDesc);
+        setPageComplete(true);
+    }
+    
+    
+    /**
+     * @see org.eclipse.jdt.ui.wizards.IClasspathContainerPageExtension#initialize(org.eclipse.jdt.core.IJavaProject, org.eclipse.jdt.core.IClasspathEntry[])
+     */
+    public void initialize(IJavaProject project, IClasspathEntry[] currentEntries) {
+        _proj = project;
+    }
+    
+    /**
+     * @see org.eclipse.jface.dialogs.IDialogPage#createControl(org.eclipse.swt.widgets.Composite)
+     */
+    public void createControl(Composite parent) {
+        Composite composite = new Composite(parent, SWT.NULL);
+        composite.setLayout(new GridLayout());
+        composite.setLayoutData(new GridData(GridData.VERTICAL_ALIGN_FILL
+                | GridData.HORIZONTAL_ALIGN_FILL));
+        composite.setFont(parent.getFont());
+        
+        createDirGroup(composite);
+        
+        createExtGroup(composite);
+        
+        createOptionsGroup(composite);
+        
+        createConflictsGroup(composite);
+        
+        setControl(composite);    
+    }
+    
+    /**
+     * Creates the directory label, combo, and browse button
+     * 
+     * @param parent the parent widget
+     */
+    private void createDirGroup(Composite parent) {
+        Composite dirSelectionGroup = new Composite(parent, SWT.NONE);
+        GridLayout layout= new GridLayout();
+        layout.numColumns = 3;
+        dirSelectionGroup.setLayout(layout);
+        dirSelectionGroup.setLayoutData(new GridData(GridData.GRAB_HORIZONTAL| GridData.VERTICAL_ALIGN_FILL));
+
+        new Label(dirSelectionGroup, SWT.NONE).setText(Messages.DirLabel);
+
+        _dirCombo = new Combo(dirSelectionGroup, SWT.SINGLE | SWT.BORDER);
+        _dirCombo.setText( getInitDir() );                
+
+        _dirBrowseButton= new Button(dirSelectionGroup, SWT.PUSH);
+        _dirBrowseButton.setText( Messages.Browse ); 
+        _dirBrowseButton.setLayoutData(new GridData(GridData.HORIZONTAL_ALIGN_FILL));
+        _dirBrowseButton.addSelectionListener(new SelectionAdapter() {
+            public void widgetSelected(SelectionEvent e) {
+                handleDirBrowseButtonPressed();
+           }
+        });    
+        setControl(dirSelectionGroup);
+    }
+    
+    /**
+     * Creates the extensions label and text box
+     * 
+     * @param parent parent widget
+     */
+    private void createExtGroup(Composite parent) {
+        Composite extSelectionGroup = new Composite(parent, SWT.NONE);
+        GridLayout layout= new GridLayout();
+        layout.numColumns = 2;
+        extSelectionGroup.setLayout(layout);
+        extSelectionGroup.setLayoutData(new GridData(GridData.GRAB_HORIZONTAL| GridData.VERTICAL_ALIGN_FILL));
+
+        new Label(extSelectionGroup, SWT.NONE).setText(Messages.ExtLabel);
+        
+        _extText = new Text(extSelectionGroup,SWT.BORDER);
+        _extText.setText(getInitExts());
+
+        setControl(extSelectionGroup);
+    }
+    
+    /**
+     * Creates a check box for each container option
+     * 
+     * @param parent parent widget
+     */
+    private void createOptionsGroup(Composite parent) {
+        Composite optionsGroup = new Composite(parent, SWT.NONE);
+        optionsGroup.setLayout(new GridLayout());
+        optionsGroup.setLayoutData(new GridData(GridData.GRAB_HORIZONTAL| GridData.VERTICAL_ALIGN_FILL));
+        
+        createOptionButton(optionsGroup, ContainerOptions.MANIFEST_CLASSPATH, Messages.OptionManifestClassPath);
+        createOptionButton(optionsGroup, ContainerOptions.LOCKFILE, Messages.OptionLockfile);
+        createOptionButton(optionsGroup, ContainerOptions.PREFETCH, Messages.OptionPrefetch);
+        createOptionButton(optionsGroup, ContainerOptions.CLASS_INDEX, Messages.OptionClassIndex);
+        createOptionButton(optionsGroup, ContainerOptions.EXTRACT_NESTED, Messages.OptionExtractNested);
+        
+        setControl(optionsGroup);
+    }
+    
+    /**
+     * Lists the split packages and shadowed classes found by the class index of the 
+     * edited container, if it has one and it found any
+     * 
+     * @param parent parent widget
+     */
+    private void createConflictsGroup(Composite parent) {
+        if(_initPath == null || !_initOptions.isEnabled(ContainerOptions.CLASS_INDEX)) {
+            return;
+        }
+        ClassIndex index = null;
+        try {
+            IClasspathContainer container = JavaCore.getClasspathContainer(_initPath, _proj);
+            if(container instanceof DirectoryContainer) {
+                index = ClassIndex.read(((DirectoryContainer)container).getClassIndexFile());
+            }
+        } catch(JavaModelException e) {
+            Logger.log(Logger.ERROR, e);
+        }
+        if(index == null) {
+            return;
+        }
+        List<String> conflicts = index.describeConflicts(MAX_CONFLICTS);
+        if(conflicts.isEmpty()) {
+            return;
+        }
+        
+        Composite conflictsGroup = new Composite(parent, SWT.NONE);
+        conflictsGroup.setLayout(new GridLayout());
+        conflictsGroup.setLayoutData(new GridData(GridData.FILL_BOTH));
+        
+        new Label(conflictsGroup, SWT.NONE).setText(Messages.ConflictsLabel);
+        
+        Text conflictsText = new Text(conflictsGroup, SWT.MULTI | SWT.READ_ONLY | SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL);
+        GridData layoutData = new GridData(GridData.FILL_BOTH);
+        layoutData.heightHint = 100;
+        conflictsText.setLayoutData(layoutData);
+        StringBuilder text = new StringBuilder();
+        for(String conflict: conflicts) {
+            text.append(conflict).append('\n');
+        }
+        conflictsText.setText(text.toString());
+        
+        setControl(conflictsGroup);
+    }
+    
+    /**
+     * Creates the check box of a container option, checked if the option is enabled on 
+     * the edited container
+     */
+    private void createOptionButton(Composite parent, String option, String label) {
+        Button button = new Button(parent, SWT.CHECK);
+        button.setText(label);
+        button.setSelection(_initOptions.isEnabled(option));
+        _optionButtons.put(option, button);
+    }
+    
+    /**
+     * Creates a directory dialog 
+     */
+    protected void handleDirBrowseButtonPressed() {
+        DirectoryDialog dialog = new DirectoryDialog(getContainer().getShell(), SWT.SAVE);
+        dialog.setMessage(Messages.DirSelect);
+        dialog.setFilterPath(getDirValue());
+        String dir = dialog.open();
+        if (dir != null) {
+            _dirCombo.setText(dir);            
+        }            
+    }
+    
+    /**
+     * Extracts the initial directory value from a path passed in setSelection()
+     * 
+     * @return the inital directory value
+     */
+    private String getInitDir() {
+        String projDir = _proj.getProject().getLocation().toString();
+        if(_initPath != null && _initPath.segmentCount() > 1 ) {
+            return projDir + IPath.SEPARATOR + _initPath.segment(1);
+        }
+        // else
+        return projDir;
+        
+    }
+    
+    /**
+     * Extracts the initial extensions list from a path passed in setSelection()
+     * 
+     * @return the intial comma separated list of extensions
+     */
+    private String getInitExts() {
+        if(_initPath != null && _initPath.segmentCount() > 2 ) {
+            return _initPath.segment(2);
+        }
+        // else 
+        return DEFAULT_EXTS;
+    }
+        
+    /**
+     * @return the current extension list
+     */
+    protected String getExtValue() {
+        return _extText.getText().trim().toLowerCase();
+    }
+    
+    /**
+     * @return the current directory
+     */
+    protected String getDirValue() {
+        return _dirCombo.getText();
+    }
+    
+    /**
+     * @return directory relative to the parent project
+     */
+    protected String getRelativeDirValue() {
+        int projDirLen = _proj.getProject().getLocation().toString().length();
+        return getDirValue().substring( projDirLen );
+    }
+    
+    /**
+     * Checks that the directory is a subdirectory of the project being configured
+     * 
+     * @param dir a directory to validate
+     * @return true if the directory is valid
+     */
+    private boolean isDirValid(String dir) {
+        Path dirPath = new Path(dir);
+        return _proj.getProject().getLocation().makeAbsolute().isPrefixOf(dirPath);
+    }
+    
+    /**
+     * Checks that the list of comma separated extensions are valid.  Must meet the 
+     * following:
+     *  - non-null and non-empty
+     *  - match the regex [a-z_][a-z_,]*
+     * 
+     * @param exts comma separated list of extensions
+     * @return true if the extension list is valid
+     */
+    private boolean areExtsValid(String exts) {
+        if(exts==null || exts.equals("")) {
+            return false;
+        }        
+        //else
+        return exts.matches("[a-z_][a-z_,]*");
+    }
+    
+    /**
+     * @see org.eclipse.jdt.ui.wizards.IClasspathContainerPage#finish()
+     */
+    public boolean finish() {
+        if(!areExtsValid(getExtValue())) {
+            setErrorMessage(Messages.ExtErr);
+            return false;    
+        } else if(!isDirValid(getDirValue())) {
+            setErrorMessage( NLS.bind(Messages.DirErr, _proj.getProject().getName()));            
+            return false;
+        }        
+        return true;        
+    }
+
+    /**
+     * @see org.eclipse.jdt.ui.wizards.IClasspathContainerPage#getSelection()
+     */
+    public IClasspathEntry getSelection() {
+        String dir = getRelativeDirValue();
+        if(dir.equals("")) {
+            dir = DirectoryContainer.ROOT_DIR;
+        }
+        IPath containerPath = DirectoryContainer.ID.append( "/" + dir + "/" + 
+                                                                   getExtValue());
+        return JavaCore.newContainerEntry(containerPath, new IAccessRule[0], getOptionAttributes(), false);
+    }
+
+    /**
+     * @return the container entry attributes of the checked options
+     */
+    private IClasspathAttribute[] getOptionAttributes() {
+        List<IClasspathAttribute> attributes = new ArrayList<IClasspathAttribute>();
+        for(Map.Entry<String, Button> option: _optionButtons.entrySet()) {
+            if(option.getValue().getSelection()) {
+                attributes.add(JavaCore.newClasspathAttribute(option.getKey(), Boolean.TRUE.toString()));
+            }
+        }
+        return attributes.toArray(new IClasspathAttribute[attributes.size()]);
+    }
+
+    /**
+     * @see org.eclipse.jdt.ui.wizards.IClasspathContainerPage#setSelection(org.eclipse.jdt.core.IClasspathEntry)
+     */
+    public void setSelection(IClasspathEntry containerEntry) {
+        if(containerEntry != null) {
+            _initPath = containerEntry.getPath();
+            _initOptions = ContainerOptions.of(containerEntry);
+        }        
+    }    
+}
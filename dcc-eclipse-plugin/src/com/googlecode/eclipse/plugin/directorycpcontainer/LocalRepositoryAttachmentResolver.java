@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+import com.googlecode.eclipse.plugin.directorycpcontainer.api.ContainerOwner;
+import com.googlecode.eclipse.plugin.directorycpcontainer.api.IAttachmentResolver;
+
+/**
+ * Built-in resolver looking attachments up in a local repository laid out as 
+ * groupId/artifactId/version/artifactId-version[-sources|-javadoc].jar, such as a Maven 
+ * local repository or a mirror of one.  The repository root is given by the 
+ * REPOSITORY_PROPERTY system property; the resolver does nothing when it is not set.
+ * 
+ * The repository is indexed by attachment file name in a background job, so looking up 
+ * a library is a map access and never walks the repository on a scan thread : lookups 
+ * answer from whatever index exists.  The index is then kept current incrementally, at 
+ * most every REFRESH_INTERVAL : only the directories whose modification time changed are 
+ * listed again, the other ones cost a single stat.  Containers resolved before the 
+ * index was first built are refreshed once it is.
+ * 
+ * Artifacts of different groups may share a name : such libraries only get the 
+ * attachment of the candidate whose repository library has the same length, if there 
+ * is exactly one.
+ * 
+ * @author Frederic Camblor
+ */
+public class LocalRepositoryAttachmentResolver implements IAttachmentResolver {
+    
+    /**
+     * System property holding the root directory of the local repository
+     */
+    public final static String REPOSITORY_PROPERTY = "com.googlecode.eclipse.plugin.directorycpcontainer.localRepository";
+    
+    // minimum delay (in ms) between two checks of the repository for changes
+    private final static long REFRESH_INTERVAL = 30000;
+    // maximum depth walked below the root, protecting against symbolic link cycles
+    private final static int MAX_DEPTH = 16;
+    
+    private final static String SOURCES_SUFFIX = "-sources";
+    private final static String JAVADOC_SUFFIX = "-javadoc";
+    
+    // source archive candidates, by library name without extension
+    private final ConcurrentMap<String, String[]> _sources = new ConcurrentHashMap<String, String[]>();
+    // javadoc archive candidates, by library name without extension
+    private final ConcurrentMap<String, String[]> _javadocs = new ConcurrentHashMap<String, String[]>();
+    // indexed directories, with their state when they were last listed
+    private final Map<File, IndexedDir> _dirs = new HashMap<File, IndexedDir>();
+    // repository root the index was built for
+    private File _root;
+    // time of the last check for changes
+    private volatile long _lastRefresh;
+    // whether the index has been built once
+    private volatile boolean _built;
+    // whether libraries have been looked up before the index was built
+    private volatile boolean _missedLookups;
+    // whether the refresh job is scheduled or running
+    private final AtomicBoolean _refreshScheduled = new AtomicBoolean();
+    
+    /**
+     * @see com.googlecode.eclipse.plugin.directorycpcontainer.api.IAttachmentResolver#resolveSource(java.io.File, java.util.Set)
+     */
+    public String resolveSource(File lib, Set<String> exts) {
+        return lookup(_sources, lib);
+    }
+    
+    /**
+     * @see com.googlecode.eclipse.plugin.directorycpcontainer.api.IAttachmentResolver#resolveJavadoc(java.io.File, java.util.Set)
+     */
+    public String resolveJavadoc(File lib, Set<String> exts) {
+        return lookup(_javadocs, lib);
+    }
+    
+    private String lookup(Map<String, String[]> attachments, File lib) {
+        if(System.currentTimeMillis() - _lastRefresh > REFRESH_INTERVAL) {
+            scheduleRefresh();
+        }
+        if(!_built) {
+            _missedLookups = true;
+        }
+        String[] nameSegs = DirectoryContainer.splitFileNameWithExtension(lib.getName());
+        String[] candidates = attachments.get(nameSegs[0]);
+        if(candidates == null) {
+            return null;
+        }
+        if(candidates.length == 1) {
+            return candidates[0];
+        }
+        return selectCandidate(candidates, lib);
+    }
+    
+    /**
+     * Picks the attachment of the artifact the library is a copy of, among artifacts of 
+     * different groups sharing its name
+     * 
+     * @return the only candidate whose repository library has the library length, null 
+     * if there is none or several
+     */
+    private static String selectCandidate(String[] candidates, File lib) {
+        long length = lib.length();
+        String selected = null;
+        for(String candidate: candidates) {
+            File repositoryLib = new File(new File(candidate).getParentFile(), lib.getName());
+            if(repositoryLib.length() == length && repositoryLib.isFile()) {
+                if(selected != null) {
+                    return null;
+                }
+                selected = candidate;
+            }
+        }
+        return selected;
+    }
+    
+    /**
+     * Schedules the background job bringing the index up to date, unless it already is
+     */
+    private void scheduleRefresh() {
+        if(!_refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Job job = new Job(Messages.RepositoryIndexJob) {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                try {
+                    refresh();
+                } finally {
+                    _refreshScheduled.set(false);
+                }
+                if(!_built) {
+                    _built = true;
+                    if(_missedLookups && !(_sources.isEmpty() && _javadocs.isEmpty())) {
+                        refreshContainers(monitor);
+                    }
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+        job.schedule();
+    }
+    
+    /**
+     * Hands JDT new instances of the containers resolved so far, so that they look their 
+     * attachments up again in the built index.  The new instances are scanned first, so 
+     * that cancelling the job also cancels the scan in progress.
+     */
+    private static void refreshContainers(IProgressMonitor monitor) {
+        for(ContainerOwner owner: DirectoryContainerIndex.getDefault().getContainers()) {
+            if(monitor.isCanceled()) {
+                return;
+            }
+            IJavaProject project = JavaCore.create(owner.getProject());
+            DirectoryContainer container = new DirectoryContainer(owner.getContainerPath(), project);
+            container.getSnapshot(monitor);
+            try {
+                JavaCore.setClasspathContainer(owner.getContainerPath(), new IJavaProject[] { project }, 
+                        new IClasspathContainer[] { container }, monitor);
+            } catch(JavaModelException e) {
+                Logger.log(Logger.ERROR, e);
+            }
+        }
+    }
+    
+    /**
+     * Brings the index up to date with the repository
+     */
+    private synchronized void refresh() {
+        String rootPath = System.getProperty(REPOSITORY_PROPERTY);
+        File root = rootPath == null ? null : new File(rootPath).getAbsoluteFile();
+        if(root == null ? _root != null : !root.equals(_root)) {
+            // configured repository changed : start over
+            _sources.clear();
+            _javadocs.clear();
+            _dirs.clear();
+            _root = root;
+        }
+        if(_root != null && _root.isDirectory()) {
+            refresh(_root, 0);
+        }
+        _lastRefresh = System.currentTimeMillis();
+    }
+    
+    /**
+     * Lists the directory again if it changed since last indexed, then recurses into its 
+     * sub directories
+     */
+    private void refresh(File dir, int depth) {
+        IndexedDir indexed = _dirs.get(dir);
+        long lastModified = dir.lastModified();
+        if(indexed == null || indexed.lastModified != lastModified) {
+            IndexedDir previous = indexed;
+            if(previous != null) {
+                unindexFiles(previous);
+            }
+            indexed = index(dir, lastModified);
+            _dirs.put(dir, indexed);
+            if(previous != null) {
+                for(File subDir: previous.subDirs) {
+                    if(!indexed.subDirs.contains(subDir)) {
+                        unindexTree(subDir);
+                    }
+                }
+            }
+        }
+        if(depth < MAX_DEPTH) {
+            for(File subDir: indexed.subDirs) {
+                refresh(subDir, depth + 1);
+            }
+        }
+    }
+    
+    /**
+     * Lists a directory and records the attachments it holds
+     */
+    private IndexedDir index(File dir, long lastModified) {
+        IndexedDir indexed = new IndexedDir(lastModified);
+        File[] files = dir.listFiles();
+        if(files == null) {
+            return indexed;
+        }
+        for(File file: files) {
+            if(file.isDirectory()) {
+                indexed.subDirs.add(file);
+                continue;
+            }
+            String[] nameSegs = DirectoryContainer.splitFileNameWithExtension(file.getName());
+            if(nameSegs.length != 2) {
+                continue;
+            }
+            if(nameSegs[0].endsWith(SOURCES_SUFFIX)) {
+                String libName = nameSegs[0].substring(0, nameSegs[0].length() - SOURCES_SUFFIX.length());
+                addCandidate(_sources, libName, file.getAbsolutePath());
+                indexed.sources.put(libName, file.getAbsolutePath());
+            } else if(nameSegs[0].endsWith(JAVADOC_SUFFIX)) {
+                String libName = nameSegs[0].substring(0, nameSegs[0].length() - JAVADOC_SUFFIX.length());
+                addCandidate(_javadocs, libName, file.getAbsolutePath());
+                indexed.javadocs.put(libName, file.getAbsolutePath());
+            }
+        }
+        return indexed;
+    }
+    
+    /**
+     * Forgets the attachments a directory listing contributed
+     */
+    private void unindexFiles(IndexedDir indexed) {
+        for(Map.Entry<String, String> source: indexed.sources.entrySet()) {
+            removeCandidate(_sources, source.getKey(), source.getValue());
+        }
+        for(Map.Entry<String, String> javadoc: indexed.javadocs.entrySet()) {
+            removeCandidate(_javadocs, javadoc.getKey(), javadoc.getValue());
+        }
+    }
+    
+    /**
+     * Forgets a removed directory and everything below it
+     */
+    private void unindexTree(File dir) {
+        IndexedDir indexed = _dirs.remove(dir);
+        if(indexed != null) {
+            unindexFiles(indexed);
+            for(File subDir: indexed.subDirs) {
+                unindexTree(subDir);
+            }
+        }
+    }
+    
+    /**
+     * Adds an attachment to the candidates of a library name, replacing the candidates 
+     * array so that concurrent lookups see either the old or the new one
+     */
+    private static void addCandidate(ConcurrentMap<String, String[]> attachments, String libName, String path) {
+        String[] candidates = attachments.get(libName);
+        if(candidates == null) {
+            attachments.put(libName, new String[] { path });
+            return;
+        }
+        for(String candidate: candidates) {
+            if(candidate.equals(path)) {
+                return;
+            }
+        }
+        String[] newCandidates = new String[candidates.length + 1];
+        System.arraycopy(candidates, 0, newCandidates, 0, candidates.length);
+        newCandidates[candidates.length] = path;
+        attachments.put(libName, newCandidates);
+    }
+    
+    /**
+     * Removes an attachment from the candidates of a library name
+     */
+    private static void removeCandidate(ConcurrentMap<String, String[]> attachments, String libName, String path) {
+        String[] candidates = attachments.get(libName);
+        if(candidates == null) {
+            return;
+        }
+        List<String> remaining = new ArrayList<String>(candidates.length);
+        for(String candidate: candidates) {
+            if(!candidate.equals(path)) {
+                remaining.add(candidate);
+            }
+        }
+        if(remaining.isEmpty()) {
+            attachments.remove(libName);
+        } else {
+            attachments.put(libName, remaining.toArray(new String[remaining.size()]));
+        }
+    }
+    
+    /**
+     * What a directory contributed to the index when it was last listed
+     */
+    private static class IndexedDir {
+        private final long lastModified;
+        private final List<File> subDirs = new ArrayList<File>();
+        // attachment paths, by library name
+        private final Map<String, String> sources = new HashMap<String, String>();
+        private final Map<String, String> javadocs = new HashMap<String, String>();
+        
+        private IndexedDir(long lastModified) {
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -1,73 +1,266 @@
-/*
- * Copyright (c) 1998, Regents of the University of California
- * All rights reserved.
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- *
- *     * Redistributions of source code must retain the above copyright
- *       notice, this list of conditions and the following disclaimer.
- *     * Redistributions in binary form must reproduce the above copyright
- *       notice, this list of conditions and the following disclaimer in the
- *       documentation and/or other materials provided with the distribution.
- *     * Neither the name of the University of California, Berkeley nor the
- *       names of its contributors may be used to endorse or promote products
- *       derived from this software without specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
- * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
- * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
- * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
- * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
- * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
- * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
- */
-package com.googlecode.eclipse.plugin.directorycpcontainer;
-
-import org.eclipse.core.runtime.ILog;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Platform;
-import org.eclipse.core.runtime.Status;
-
-/**
- * This is a simple logger that logs messages and stack traces to the Eclipse error log.
- * 
- * @author Frederic Camblor
- */
-public class Logger {
-    public final static String PLUGIN_ID = "com.googlecode.eclipse.plugin.directorycpcontainer";
-    // logging severities
-    public static final int OK = IStatus.OK;
-    public static final int ERROR = IStatus.ERROR;
-    public static final int CANCEL = IStatus.CANCEL;
-    public static final int INFO = IStatus.INFO;
-    public static final int WARNING = IStatus.WARNING;
-    // reference to the Eclipse error log
-    private static ILog log;
-    
-    /**
-     * Get a reference to the Eclipse error log
-     */
-    static {
-        log = Platform.getLog(Platform.getBundle(PLUGIN_ID));    
-    }
-    
-    /**
-     * Prints stack trace to Eclipse error log 
-     */
-    public static void log(int severity, Throwable e) {
-        Status s = new Status(severity, PLUGIN_ID, IStatus.OK, e.getMessage(), e);
-        log.log(s);
-    }
-    
-    /**
-     * Prints a message to the Eclipse error log
-     */
-    public static void log(int severity, String msg) {
-        Status s = new Status(severity, PLUGIN_ID, IStatus.OK, msg, null);
-        log.log(s);
-    }
-
-}
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * This is a simple logger that logs messages and stack traces to the Eclipse error log.
+ * 
+ * Messages are handed over to a background writer through a bounded queue, so logging 
+ * never blocks the caller.  Identical messages (same severity, text and exception type) 
+ * are reported at most once per RATE_LIMIT_WINDOW; the repetitions swallowed in between 
+ * are summarized by a single "suppressed" message once the window has elapsed.
+ * 
+ * @author Frederic Camblor
+ */
+public class Logger {
+    public final static String PLUGIN_ID = "com.googlecode.eclipse.plugin.directorycpcontainer";
+    // logging severities
+    public static final int OK = IStatus.OK;
+    public static final int ERROR = IStatus.ERROR;
+    public static final int CANCEL = IStatus.CANCEL;
+    public static final int INFO = IStatus.INFO;
+    public static final int WARNING = IStatus.WARNING;
+    
+    // minimum delay (in ms) between two reports of the same message
+    private static final long RATE_LIMIT_WINDOW = 10000;
+    // maximum number of statuses waiting to be written to the error log
+    private static final int QUEUE_CAPACITY = 256;
+    // number of idle windows after which a message key is forgotten
+    private static final int IDLE_WINDOWS_BEFORE_EVICTION = 6;
+    
+    // reference to the Eclipse error log
+    private static ILog log;
+    // statuses waiting for the writer thread
+    private static final BlockingQueue<IStatus> queue = new ArrayBlockingQueue<IStatus>(QUEUE_CAPACITY);
+    // per message key rate limiting state
+    private static final ConcurrentMap<String, MessageStats> stats = new ConcurrentHashMap<String, MessageStats>();
+    // statuses lost because the queue was full
+    private static final AtomicInteger dropped = new AtomicInteger();
+    // thread writing the queued statuses to the error log
+    private static final Thread writer;
+    
+    /**
+     * Get a reference to the Eclipse error log and start the writer thread
+     */
+    static {
+        log = Platform.getLog(Platform.getBundle(PLUGIN_ID));
+        writer = new Thread(new Runnable() {
+            public void run() {
+                writeLoop();
+            }
+        }, "Directory Container logger");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+    
+    /**
+     * Writes the queued statuses and stops the writer thread, when the bundle stops.  
+     * Messages logged afterwards are dropped.
+     */
+    static void shutdown() {
+        writer.interrupt();
+        try {
+            writer.join(RATE_LIMIT_WINDOW);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Prints stack trace to Eclipse error log 
+     */
+    public static void log(int severity, Throwable e) {
+        log(severity, e.getMessage(), e);
+    }
+    
+    /**
+     * Prints a message to the Eclipse error log
+     */
+    public static void log(int severity, String msg) {
+        log(severity, msg, null);
+    }
+    
+    /**
+     * Prints a message and its stack trace to the Eclipse error log, unless the same 
+     * message has already been reported during the current rate limiting window
+     */
+    public static void log(int severity, String msg, Throwable e) {
+        if(msg == null) {
+            msg = "";
+        }
+        String key = messageKey(severity, msg, e);
+        MessageStats msgStats = stats.get(key);
+        if(msgStats == null) {
+            MessageStats created = new MessageStats(severity, msg);
+            msgStats = stats.putIfAbsent(key, created);
+            if(msgStats == null) {
+                msgStats = created;
+            }
+        }
+        
+        long now = System.currentTimeMillis();
+        if(msgStats.tryAcquire(now)) {
+            // first report of this window : also account for what has been swallowed 
+            // since the previous one
+            int suppressed = msgStats.suppressed.getAndSet(0);
+            if(suppressed > 0) {
+                enqueue(suppressedStatus(severity, msg, suppressed));
+            }
+            enqueue(new Status(severity, PLUGIN_ID, IStatus.OK, msg, e));
+        }
+    }
+    
+    /**
+     * Builds the deduplication key of a message
+     */
+    private static String messageKey(int severity, String msg, Throwable e) {
+        StringBuilder key = new StringBuilder(msg.length() + 64);
+        key.append(severity).append('|');
+        if(e != null) {
+            key.append(e.getClass().getName());
+        }
+        return key.append('|').append(msg).toString();
+    }
+    
+    /**
+     * Queues the status for the writer thread, or counts it as dropped if the queue is full
+     */
+    private static void enqueue(IStatus status) {
+        if(!queue.offer(status)) {
+            dropped.incrementAndGet();
+        }
+    }
+    
+    /**
+     * @return a status summarizing the number of times msg has been suppressed
+     */
+    private static IStatus suppressedStatus(int severity, String msg, int count) {
+        return new Status(severity, PLUGIN_ID, IStatus.OK, NLS.bind(Messages.LogSuppressed, 
+                Integer.valueOf(count), msg), null);
+    }
+    
+    /**
+     * Writer thread main loop : drains the queue to the Eclipse error log and, when idle, 
+     * flushes pending suppressed counts and forgets idle message keys
+     */
+    private static void writeLoop() {
+        while(true) {
+            try {
+                IStatus status = queue.poll(RATE_LIMIT_WINDOW, TimeUnit.MILLISECONDS);
+                if(status != null) {
+                    log.log(status);
+                }
+                int lost = dropped.getAndSet(0);
+                if(lost > 0) {
+                    log.log(new Status(WARNING, PLUGIN_ID, IStatus.OK, 
+                            NLS.bind(Messages.LogDropped, Integer.valueOf(lost)), null));
+                }
+                if(status == null || queue.isEmpty()) {
+                    flushSuppressed(System.currentTimeMillis());
+                }
+            } catch(InterruptedException e) {
+                // shutting down : write what is left
+                IStatus status;
+                while((status = queue.poll()) != null) {
+                    log.log(status);
+                }
+                flushSuppressed(Long.MAX_VALUE);
+                return;
+            } catch(RuntimeException e) {
+                // never let the writer thread die because of a faulty log listener
+            }
+        }
+    }
+    
+    /**
+     * Writes summaries for messages whose window has elapsed without a new report, and 
+     * evicts keys that have been idle for long enough
+     */
+    private static void flushSuppressed(long now) {
+        Iterator<MessageStats> iter = stats.values().iterator();
+        while(iter.hasNext()) {
+            MessageStats msgStats = iter.next();
+            long windowEnd = msgStats.nextAllowed.get();
+            if(now < windowEnd) {
+                continue;
+            }
+            int suppressed = msgStats.suppressed.getAndSet(0);
+            if(suppressed > 0) {
+                log.log(suppressedStatus(msgStats.severity, msgStats.msg, suppressed));
+            } else if(now - windowEnd > IDLE_WINDOWS_BEFORE_EVICTION * RATE_LIMIT_WINDOW) {
+                iter.remove();
+            }
+        }
+    }
+    
+    /**
+     * Rate limiting state of a single message key
+     */
+    private static class MessageStats {
+        private final int severity;
+        private final String msg;
+        // time before which the message is suppressed
+        private final AtomicLong nextAllowed = new AtomicLong();
+        // number of reports suppressed since the last one written
+        private final AtomicInteger suppressed = new AtomicInteger();
+        
+        private MessageStats(int severity, String msg) {
+            this.severity = severity;
+            this.msg = msg;
+        }
+        
+        /**
+         * @return true if the caller may report the message now, false if it has been 
+         * counted as suppressed
+         */
+        private boolean tryAcquire(long now) {
+            long next = nextAllowed.get();
+            if(now >= next && nextAllowed.compareAndSet(next, now + RATE_LIMIT_WINDOW)) {
+                return true;
+            }
+            suppressed.incrementAndGet();
+            return false;
+        }
+    }
+
+}
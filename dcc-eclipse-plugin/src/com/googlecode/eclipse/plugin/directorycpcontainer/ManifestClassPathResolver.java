@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Follows the Class-Path headers of archive manifests to find the archives they 
+ * reference.  Manifests are read in parallel through ZipFile, which only loads the 
+ * central directory and the manifest entry, and the references found are cached by 
+ * archive fingerprint so unchanged archives are not opened twice.  The cache only keeps 
+ * the most recently used archives.
+ * 
+ * @author Frederic Camblor
+ */
+public class ManifestClassPathResolver {
+    
+    // number of archives whose manifest is read at the same time
+    private final static int PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors());
+    
+    private final static ExecutorService READER_EXECUTOR = Executors.newFixedThreadPool(
+            PARALLELISM, new DaemonThreadFactory("Directory Container manifest reader", Thread.NORM_PRIORITY));
+    
+    // maximum number of archives whose references are cached
+    private final static int CACHE_SIZE = 4096;
+    
+    // Class-Path references of recently read archives, by archive path, least recently used first
+    private final static Map<String, CachedReferences> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, CachedReferences>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedReferences> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+    
+    /**
+     * Transitively resolves the archives referenced by the manifests of the given ones.  
+     * Only references to existing files that are not in the given archives are returned, 
+     * each of them once, whatever cycles the Class-Path headers form.
+     * 
+     * @param archives the archives to start from
+     * @return the newly discovered archives, in discovery order
+     * @throws OperationCanceledException if the calling thread has been interrupted
+     */
+    public static List<File> expand(Collection<File> archives) {
+        Set<String> visited = new HashSet<String>();
+        for(File archive: archives) {
+            visited.add(canonicalPath(archive));
+        }
+        
+        List<File> discovered = new ArrayList<File>();
+        Collection<File> level = archives;
+        // breadth first : all the manifests of a level are read in parallel
+        while(!level.isEmpty()) {
+            List<File> nextLevel = new ArrayList<File>();
+            for(File referenced: readReferences(level)) {
+                if(visited.add(canonicalPath(referenced)) && referenced.isFile()) {
+                    discovered.add(referenced);
+                    nextLevel.add(referenced);
+                }
+            }
+            level = nextLevel;
+        }
+        return discovered;
+    }
+    
+    /**
+     * Stops the manifest reading threads, when the bundle stops
+     */
+    static void shutdown() {
+        READER_EXECUTOR.shutdownNow();
+    }
+    
+    /**
+     * Reads the Class-Path references of the given archives in parallel
+     * 
+     * @return the referenced files, in archive order
+     */
+    private static List<File> readReferences(Collection<File> archives) {
+        List<Future<File[]>> futures = new ArrayList<Future<File[]>>(archives.size());
+        for(final File archive: archives) {
+            futures.add(READER_EXECUTOR.submit(new Callable<File[]>() {
+                public File[] call() {
+                    return getReferences(archive);
+                }
+            }));
+        }
+        
+        List<File> references = new ArrayList<File>();
+        try {
+            for(Future<File[]> future: futures) {
+                for(File reference: future.get()) {
+                    references.add(reference);
+                }
+            }
+        } catch(InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
+        } catch(ExecutionException e) {
+            cancelAll(futures);
+            throw new IllegalStateException(e.getCause());
+        }
+        return references;
+    }
+    
+    private static void cancelAll(List<Future<File[]>> futures) {
+        for(Future<File[]> future: futures) {
+            future.cancel(true);
+        }
+    }
+    
+    /**
+     * @return the files referenced by the archive manifest, from the cache if the archive 
+     * did not change since it was last read
+     */
+    private static File[] getReferences(File archive) {
+        ArchiveFingerprint fingerprint = ArchiveFingerprint.of(archive);
+        CachedReferences cached = CACHE.get(fingerprint.getPath());
+        if(cached != null && cached.fingerprint.equals(fingerprint)) {
+            return cached.references;
+        }
+        File[] references = readManifestClassPath(archive);
+        CACHE.put(fingerprint.getPath(), new CachedReferences(fingerprint, references));
+        return references;
+    }
+    
+    /**
+     * Reads the Class-Path header of the archive manifest and resolves its entries 
+     * against the archive directory
+     * 
+     * @return the referenced files, empty if the archive has no manifest or can't be read
+     */
+    private static File[] readManifestClassPath(File archive) {
+        String classPath = null;
+        try {
+            ZipFile zip = new ZipFile(archive);
+            try {
+                ZipEntry manifestEntry = zip.getEntry(JarFile.MANIFEST_NAME);
+                if(manifestEntry != null) {
+                    InputStream in = zip.getInputStream(manifestEntry);
+                    try {
+                        Manifest manifest = new Manifest(in);
+                        classPath = manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+                    } finally {
+                        in.close();
+                    }
+                }
+            } finally {
+                zip.close();
+            }
+        } catch(IOException e) {
+            // not an archive, or a corrupted one : it just doesn't reference anything
+            Logger.log(Logger.WARNING, archive + ": " + e.getMessage());
+        }
+        if(classPath == null) {
+            return new File[0];
+        }
+        
+        List<File> references = new ArrayList<File>();
+        StringTokenizer tokens = new StringTokenizer(classPath);
+        while(tokens.hasMoreTokens()) {
+            File reference = toFile(archive.getParentFile(), tokens.nextToken());
+            if(reference != null) {
+                references.add(reference);
+            }
+        }
+        return references.toArray(new File[references.size()]);
+    }
+    
+    /**
+     * Converts a Class-Path entry, which is a relative URL, to a file
+     * 
+     * @return the referenced file, or null if the entry is not a local relative reference
+     */
+    private static File toFile(File baseDir, String url) {
+        if(url.indexOf(':') >= 0) {
+            // absolute URL : outside of the library directory, ignore it
+            return null;
+        }
+        try {
+            url = URLDecoder.decode(url.replace("+", "%2B"), "UTF-8");
+        } catch(UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+        } catch(IllegalArgumentException e) {
+            // malformed escape sequence : use the entry as is
+        }
+        return new File(baseDir, url.replace('/', File.separatorChar));
+    }
+    
+    private static String canonicalPath(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch(IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+    
+    /**
+     * Class-Path references read from an archive, with the fingerprint it had
+     */
+    private static class CachedReferences {
+        private final ArchiveFingerprint fingerprint;
+        private final File[] references;
+        
+        private CachedReferences(ArchiveFingerprint fingerprint, File[] references) {
+            this.fingerprint = fingerprint;
+            this.references = references;
+        }
+    }
+}
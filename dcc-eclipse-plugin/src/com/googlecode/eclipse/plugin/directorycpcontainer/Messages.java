@@ -1,67 +1,101 @@
-/*
- * Copyright (c) 1998, Regents of the University of California
- * All rights reserved.
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- *
- *     * Redistributions of source code must retain the above copyright
- *       notice, this list of conditions and the following disclaimer.
- *     * Redistributions in binary form must reproduce the above copyright
- *       notice, this list of conditions and the following disclaimer in the
- *       documentation and/or other materials provided with the distribution.
- *     * Neither the name of the University of California, Berkeley nor the
- *       names of its contributors may be used to endorse or promote products
- *       derived from this software without specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
- * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
- * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
- * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
- * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
- * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
- * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
- */
-package com.googlecode.eclipse.plugin.directorycpcontainer;
-
-import org.eclipse.osgi.util.NLS;
-
-/**
- * Bundle messages container
- * @author Frederic Camblor
- */
-public class Messages extends NLS {
-    private static final String BUNDLE_NAME = "com.googlecode.eclipse.plugin.directorycpcontainer.messages"; //$NON-NLS-1$
-
-    public static String Browse;
-    
-    public static String DirErr;
-    
-    public static String DirLabel;
-    
-    public static String DirSelect;
-    
-    public static String ExtErr;
-    
-    public static String ExtLabel;
-    
-    public static String InvalidContainer;
-    
-    public static String PageDesc;
-    
-    public static String PageName;
-
-    public static String PageTitle;
-    
-        
-
-    static {
-        // initialize resource bundle
-        NLS.initializeMessages(BUNDLE_NAME, Messages.class);
-    }
-
-    private Messages() {
-    }
-}
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Bundle messages container
+ * @author Frederic Camblor
+ */
+public class Messages extends NLS {
+    private static final String BUNDLE_NAME = "com.googlecode.eclipse.plugin.directorycpcontainer.messages"; //$NON-NLS-1$
+
+    public static String Browse;
+    
+    public static String DirErr;
+    
+    public static String DirLabel;
+    
+    public static String DirSelect;
+    
+    public static String ClassIndexConflicts;
+    
+    public static String ClassIndexJob;
+    
+    public static String ConflictsLabel;
+    
+    public static String ExtErr;
+    
+    public static String ExtLabel;
+    
+    public static String InvalidContainer;
+    
+    public static String LogDropped;
+    
+    public static String LogSuppressed;
+    
+    public static String NestedCacheCleanUpJob;
+    
+    public static String OptionClassIndex;
+    
+    public static String OptionExtractNested;
+    
+    public static String OptionLockfile;
+    
+    public static String OptionManifestClassPath;
+    
+    public static String OptionPrefetch;
+    
+    public static String PageDesc;
+    
+    public static String PageName;
+
+    public static String PageTitle;
+    
+    public static String RefreshJob;
+    
+    public static String RepositoryIndexJob;
+    
+    public static String ScanTimeout;
+    
+    public static String ShadowedClass;
+    
+    public static String SplitPackage;
+    
+    public static String StaleDesc;
+    
+        
+
+    static {
+        // initialize resource bundle
+        NLS.initializeMessages(BUNDLE_NAME, Messages.class);
+    }
+
+    private Messages() {
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Extracts the jars nested in distribution zips into a content-addressed cache in the 
+ * plug-in state location, so that containers can publish the inner jars instead of the 
+ * zip itself.
+ * 
+ * A distribution is identified by a SHA-1 digest of its central directory, which holds 
+ * the name, size and CRC of every entry : identical zips found in several projects, or 
+ * again after a restart, share the same extraction.  Each distribution is extracted 
+ * once, into a temporary directory renamed into place when complete, its nested jars 
+ * being streamed in parallel.
+ * 
+ * The first use of an extraction in a session touches its entries file.  When the 
+ * bundle starts, the extractions no container has used for MAX_UNUSED_AGE are evicted, 
+ * along with the temporary directories left by interrupted extractions.
+ * 
+ * @author Frederic Camblor
+ */
+public class NestedArchiveCache {
+    
+    // extension of the distributions whose nested jars are extracted
+    private final static String DISTRIBUTION_EXT = "zip";
+    // extension of the extracted nested archives
+    private final static String NESTED_EXT = ".jar";
+    // file listing the extracted jars, in distribution order
+    private final static String ENTRIES_FILE = ".entries";
+    private final static String ENCODING = "UTF-8";
+    private final static int BUFFER_SIZE = 64 * 1024;
+    // marker of the temporary directories, followed by a unique suffix
+    private final static String TMP_MARKER = ".tmp";
+    // extractions unused for longer are evicted (30 days)
+    private final static long MAX_UNUSED_AGE = 30L * 24 * 60 * 60 * 1000;
+    // coarsest file system timestamp resolution (FAT)
+    private final static long MTIME_GRANULARITY = 2000;
+    
+    private final static ExecutorService EXTRACT_EXECUTOR = Executors.newFixedThreadPool(
+            Math.min(4, Runtime.getRuntime().availableProcessors()), 
+            new DaemonThreadFactory("Directory Container extractor", Thread.NORM_PRIORITY));
+    
+    // digests of already fingerprinted distributions, by path
+    private final static ConcurrentMap<String, CachedDigest> DIGESTS = new ConcurrentHashMap<String, CachedDigest>();
+    // extractions in progress, by digest, so each distribution is extracted once
+    private final static ConcurrentMap<String, FutureTask<List<File>>> EXTRACTIONS = 
+        new ConcurrentHashMap<String, FutureTask<List<File>>>();
+    // digests used during this session, never evicted : also the lock of the eviction
+    private final static Set<String> USED_DIGESTS = new HashSet<String>();
+    
+    /**
+     * Replaces the distribution zips of the given libraries by the jars they contain, 
+     * extracting them first if they are not in the cache yet.  Zips holding no jar, or 
+     * that can't be extracted, are kept as libraries.
+     * 
+     * @param libs the container libraries, in classpath order
+     * @return the libraries with the distributions replaced by their nested jars
+     * @throws OperationCanceledException if the calling thread has been interrupted
+     */
+    public static List<File> expand(List<File> libs) {
+        List<File> result = new ArrayList<File>(libs.size());
+        for(File lib: libs) {
+            if(!isDistribution(lib)) {
+                result.add(lib);
+                continue;
+            }
+            List<File> nested = Collections.emptyList();
+            try {
+                nested = getNestedArchives(lib);
+            } catch(IOException e) {
+                Logger.log(Logger.WARNING, e.getMessage(), e);
+            } catch(ExecutionException e) {
+                Logger.log(Logger.WARNING, e.getCause().getMessage(), e.getCause());
+            }
+            if(nested.isEmpty()) {
+                // an ordinary zip library
+                result.add(lib);
+            } else {
+                result.addAll(nested);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Stops the extraction threads, when the bundle stops
+     */
+    static void shutdown() {
+        EXTRACT_EXECUTOR.shutdownNow();
+    }
+    
+    /**
+     * Schedules the eviction of the extractions no container used for MAX_UNUSED_AGE, and 
+     * the deletion of the temporary directories left by previous sessions
+     */
+    static void scheduleCleanUp() {
+        final long sessionStart = System.currentTimeMillis();
+        Job job = new Job(Messages.NestedCacheCleanUpJob) {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                cleanUp(sessionStart, monitor);
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+        job.schedule();
+    }
+    
+    /**
+     * @param sessionStart temporary directories modified since are in use by this session
+     */
+    private static void cleanUp(long sessionStart, IProgressMonitor monitor) {
+        File[] dirs = getCacheRoot().listFiles();
+        if(dirs == null) {
+            return;
+        }
+        long unusedSince = System.currentTimeMillis() - MAX_UNUSED_AGE;
+        for(File dir: dirs) {
+            if(monitor.isCanceled()) {
+                return;
+            }
+            String name = dir.getName();
+            if(name.indexOf(TMP_MARKER) != -1) {
+                if(dir.lastModified() + MTIME_GRANULARITY < sessionStart) {
+                    delete(dir);
+                }
+                continue;
+            }
+            // a missing entries file is an old incomplete extraction
+            if(new File(dir, ENTRIES_FILE).lastModified() >= unusedSince) {
+                continue;
+            }
+            // moved out of the way first, so a concurrent scan either marks the digest as 
+            // used before, or no longer finds the extraction and extracts it again
+            File evicted = new File(dir.getPath() + TMP_MARKER + System.nanoTime());
+            synchronized(USED_DIGESTS) {
+                if(USED_DIGESTS.contains(name) || !dir.renameTo(evicted)) {
+                    continue;
+                }
+            }
+            delete(evicted);
+        }
+    }
+    
+    private static boolean isDistribution(File lib) {
+        String[] nameSegs = DirectoryContainer.splitFileNameWithExtension(lib.getName());
+        return nameSegs.length == 2 && nameSegs[1].equalsIgnoreCase(DISTRIBUTION_EXT);
+    }
+    
+    /**
+     * @return the jars nested in the distribution, from the cache
+     */
+    private static List<File> getNestedArchives(final File distribution) throws IOException, ExecutionException {
+        final String digest = getDigest(distribution);
+        final File cacheDir = getCacheDir(digest);
+        boolean firstUse;
+        synchronized(USED_DIGESTS) {
+            firstUse = USED_DIGESTS.add(digest);
+        }
+        if(firstUse) {
+            // keeps the extraction from being evicted
+            new File(cacheDir, ENTRIES_FILE).setLastModified(System.currentTimeMillis());
+        }
+        List<File> cached = readEntries(cacheDir);
+        if(cached != null) {
+            return cached;
+        }
+        
+        FutureTask<List<File>> extraction = new FutureTask<List<File>>(new Callable<List<File>>() {
+            public List<File> call() throws IOException, ExecutionException {
+                return extract(distribution, cacheDir);
+            }
+        });
+        FutureTask<List<File>> running = EXTRACTIONS.putIfAbsent(digest, extraction);
+        if(running == null) {
+            running = extraction;
+            try {
+                extraction.run();
+            } finally {
+                EXTRACTIONS.remove(digest, extraction);
+            }
+        }
+        try {
+            return running.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
+        }
+    }
+    
+    /**
+     * Extracts every nested jar of the distribution into a temporary directory, then 
+     * moves it to the cache directory.  If a copy fails or the extraction is cancelled, 
+     * the remaining copies are stopped and the temporary directory is deleted.
+     * 
+     * @return the extracted jars, in the cache directory
+     */
+    private static List<File> extract(File distribution, File cacheDir) throws IOException, ExecutionException {
+        File tmpDir = new File(cacheDir.getPath() + TMP_MARKER + System.nanoTime());
+        final ZipFile zip = new ZipFile(distribution);
+        final AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<?>> copies = new ArrayList<Future<?>>();
+        boolean complete = false;
+        try {
+            List<String> names = new ArrayList<String>();
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while(entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if(entry.isDirectory() || !name.toLowerCase().endsWith(NESTED_EXT) || !isSafe(name)) {
+                    continue;
+                }
+                names.add(name);
+                final File target = new File(tmpDir, name.replace('/', File.separatorChar));
+                copies.add(EXTRACT_EXECUTOR.submit(new Callable<Object>() {
+                    public Object call() throws IOException {
+                        if(!aborted.get()) {
+                            copy(zip, entry, target, aborted);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            try {
+                for(Future<?> copy: copies) {
+                    copy.get();
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException();
+            }
+            
+            tmpDir.mkdirs();
+            writeEntries(tmpDir, names);
+            complete = true;
+        } finally {
+            if(!complete) {
+                // the copies still queued or running use the zip : stop them before closing it
+                aborted.set(true);
+                awaitTermination(copies);
+            }
+            zip.close();
+            if(!complete) {
+                delete(tmpDir);
+            }
+        }
+        
+        if(!tmpDir.renameTo(cacheDir)) {
+            // most likely extracted concurrently by another workbench sharing the state location
+            delete(tmpDir);
+        }
+        List<File> extracted = readEntries(cacheDir);
+        if(extracted == null) {
+            throw new IOException(cacheDir + " could not be created");
+        }
+        return extracted;
+    }
+    
+    /**
+     * @return false for entry names that would be extracted outside the target directory
+     */
+    private static boolean isSafe(String name) {
+        return !name.startsWith("/") && !name.startsWith("\\") && name.indexOf(':') == -1 
+            && !("/" + name.replace('\\', '/') + "/").contains("/../");
+    }
+    
+    /**
+     * Waits for the given copies to stop, whether they complete, fail or are interrupted
+     */
+    private static void awaitTermination(List<Future<?>> copies) {
+        boolean interrupted = Thread.interrupted();
+        for(Future<?> copy: copies) {
+            while(true) {
+                try {
+                    copy.get();
+                    break;
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                } catch(ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Streams a zip entry to the target file, until done or aborted
+     */
+    private static void copy(ZipFile zip, ZipEntry entry, File target, AtomicBoolean aborted) throws IOException {
+        target.getParentFile().mkdirs();
+        InputStream in = zip.getInputStream(entry);
+        try {
+            OutputStream out = new FileOutputStream(target);
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while(!aborted.get() && (read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Lists the nested jars of a complete extraction, leaving out source and javadoc 
+     * archives : they stay next to their jar to be found as attachments
+     * 
+     * @return the libraries of the cache directory, or null if it is not a complete extraction
+     */
+    private static List<File> readEntries(File cacheDir) throws IOException {
+        File entriesFile = new File(cacheDir, ENTRIES_FILE);
+        if(!entriesFile.isFile()) {
+            return null;
+        }
+        List<File> libs = new ArrayList<File>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(entriesFile), ENCODING));
+        try {
+            String name;
+            while((name = reader.readLine()) != null) {
+                File lib = new File(cacheDir, name.replace('/', File.separatorChar));
+                String[] nameSegs = DirectoryContainer.splitFileNameWithExtension(lib.getName());
+                if(!DirectoryContainer.isSrcFilename(nameSegs[0]) && !DirectoryContainer.isJavadocFilename(nameSegs[0])) {
+                    libs.add(lib);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return libs;
+    }
+    
+    private static void writeEntries(File dir, List<String> names) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(new File(dir, ENTRIES_FILE)), ENCODING);
+        try {
+            for(String name: names) {
+                writer.write(name);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+    
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if(children != null) {
+            for(File child: children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+    
+    /**
+     * @return the hexadecimal SHA-1 digest of the distribution central directory, 
+     * computed once per distribution fingerprint
+     */
+    private static String getDigest(File distribution) throws IOException {
+        ArchiveFingerprint fingerprint = ArchiveFingerprint.of(distribution);
+        CachedDigest cached = DIGESTS.get(fingerprint.getPath());
+        if(cached != null && cached.fingerprint.equals(fingerprint)) {
+            return cached.digest;
+        }
+        
+        MessageDigest sha1;
+        try {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        RandomAccessFile file = new RandomAccessFile(distribution, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ZipCentralDirectory centralDirectory = ZipCentralDirectory.locate(channel);
+            if(centralDirectory == null) {
+                throw new IOException(distribution + " is not a zip archive");
+            }
+            sha1.update(centralDirectory.read(channel));
+        } finally {
+            file.close();
+        }
+        
+        StringBuilder digest = new StringBuilder();
+        for(byte b: sha1.digest()) {
+            digest.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        DIGESTS.put(fingerprint.getPath(), new CachedDigest(fingerprint, digest.toString()));
+        return digest.toString();
+    }
+    
+    /**
+     * @return the cache directory of the distribution with the given digest
+     */
+    private static File getCacheDir(String digest) {
+        return new File(getCacheRoot(), digest);
+    }
+    
+    /**
+     * @return the directory holding the cache directories and their temporary directories
+     */
+    private static File getCacheRoot() {
+        return Platform.getStateLocation(Platform.getBundle(Logger.PLUGIN_ID)).append("nested").toFile();
+    }
+    
+    /**
+     * Central directory digest of a distribution, with the fingerprint it had
+     */
+    private static class CachedDigest {
+        private final ArchiveFingerprint fingerprint;
+        private final String digest;
+        
+        private CachedDigest(ArchiveFingerprint fingerprint, String digest) {
+            this.fingerprint = fingerprint;
+            this.digest = digest;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.Set;
+
+import com.googlecode.eclipse.plugin.directorycpcontainer.api.IAttachmentResolver;
+
+/**
+ * Built-in resolver attaching the archives found next to a library whose name is the 
+ * library name followed by one of the source (-src, -source, -sources) or javadoc 
+ * (-javadoc) suffixes, with any of the container extensions.
+ * 
+ * @author Frederic Camblor
+ */
+public class SuffixAttachmentResolver implements IAttachmentResolver {
+    
+    /**
+     * @see com.googlecode.eclipse.plugin.directorycpcontainer.api.IAttachmentResolver#resolveSource(java.io.File, java.util.Set)
+     */
+    public String resolveSource(File lib, Set<String> exts) {
+        return retrieveExistingAbsPath(lib, DirectoryContainer.SRC_POSSIBLE_SUFFIXES, exts);
+    }
+    
+    /**
+     * @see com.googlecode.eclipse.plugin.directorycpcontainer.api.IAttachmentResolver#resolveJavadoc(java.io.File, java.util.Set)
+     */
+    public String resolveJavadoc(File lib, Set<String> exts) {
+        return retrieveExistingAbsPath(lib, DirectoryContainer.JAVADOC_POSSIBLE_SUFFIXES, exts);
+    }
+    
+    /**
+     * Retrieves absolute path of a concatenation of possibleSuffixes on the given lib
+     * If not found, returns null
+     * @param lib The lib to start with
+     * @param possibleSuffixes An array of suffixes to concatenate with lib
+     * @param exts The extensions the concatenation may have
+     * @return absolute path of an existing concatenation of possibleSuffixes on the given lib, null otherwise
+     */
+    private String retrieveExistingAbsPath(File lib, String[] possibleSuffixes, Set<String> exts){
+    	String[] splittedLibWithExtension = DirectoryContainer.splitFileNameWithExtension(lib.getAbsolutePath());
+    	String absPath = null;
+    	int i=0;
+    	while(i<possibleSuffixes.length && absPath==null){
+    		
+    		Iterator<String> extIter = exts.iterator();
+    		while(extIter.hasNext() && absPath==null){
+    			DirectoryContainer.checkCanceled();
+    			String ext = extIter.next();
+                File arc = new File(splittedLibWithExtension[0]+possibleSuffixes[i]+"."+ext);
+                // if the source archive exists then get the path to attach it
+                if( arc.exists()) {
+                    absPath = arc.getAbsolutePath();
+                }
+    		}
+    		
+    		i++;
+    	}
+    	
+    	return absPath;
+    }
+}
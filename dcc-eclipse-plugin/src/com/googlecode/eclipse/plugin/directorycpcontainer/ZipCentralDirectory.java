@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locates the central directory of a ZIP archive from its end records, using positional 
+ * reads only, so archives can be inspected without going through their entries.
+ * 
+ * Like java.util.zip.ZipFile, the central directory is taken to end right before the end 
+ * record rather than at the offset the end record holds, so archives with prepended data 
+ * (self-extracting archives, executable jars with a launch script) are supported.  An end 
+ * record whose comment doesn't reach the end of the file is accepted only when the central 
+ * directory and the first entry it implies are where expected : this tolerates padding 
+ * after the archive without mistaking a signature in the comment for the end record.
+ * 
+ * @author Frederic Camblor
+ */
+public final class ZipCentralDirectory {
+    
+    // end of central directory record signature and minimal length
+    private final static int EOCD_SIGNATURE = 0x06054b50;
+    private final static int EOCD_LENGTH = 22;
+    // the end record is followed by a comment of at most 64KB
+    private final static int MAX_COMMENT_LENGTH = 0xFFFF;
+    // zip64 end of central directory locator and record
+    private final static int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private final static int ZIP64_LOCATOR_LENGTH = 20;
+    private final static int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private final static int ZIP64_EOCD_LENGTH = 56;
+    private final static long ZIP64_MARKER = 0xFFFFFFFFL;
+    // central directory file header signature and fixed part length
+    private final static int CEN_SIGNATURE = 0x02014b50;
+    private final static int CEN_LENGTH = 46;
+    // local file header signature
+    private final static int LOC_SIGNATURE = 0x04034b50;
+    // entry names are decoded like java.util.zip.ZipFile does by default
+    private final static Charset NAME_CHARSET = Charset.forName("UTF-8");
+    
+    // position of the central directory in the file
+    private final long _offset;
+    // length of the central directory in bytes
+    private final long _length;
+    
+    private ZipCentralDirectory(long offset, long length) {
+        _offset = offset;
+        _length = length;
+    }
+    
+    /**
+     * Finds the central directory of the archive read through the given channel
+     * 
+     * @param channel channel on the archive
+     * @return the central directory location, null if the file is not a ZIP archive
+     * @throws IOException if the archive can't be read
+     */
+    public static ZipCentralDirectory locate(FileChannel channel) throws IOException {
+        long fileLength = channel.size();
+        if(fileLength < EOCD_LENGTH) {
+            return null;
+        }
+        int tailLength = (int)Math.min(fileLength, EOCD_LENGTH + MAX_COMMENT_LENGTH);
+        long tailStart = fileLength - tailLength;
+        ByteBuffer tail = readFully(channel, tailStart, tailLength);
+        
+        // scan backwards : the record is usually right at the end
+        for(int pos = tailLength - EOCD_LENGTH; pos >= 0; pos--) {
+            if(tail.getInt(pos) != EOCD_SIGNATURE) {
+                continue;
+            }
+            int commentLength = tail.getShort(pos + 20) & 0xFFFF;
+            // otherwise the archive is padded, or this is a signature-like sequence in the comment
+            boolean commentReachesEnd = pos + EOCD_LENGTH + commentLength == tailLength;
+            long eocdPosition = tailStart + pos;
+            long length = tail.getInt(pos + 12) & 0xFFFFFFFFL;
+            long offset = tail.getInt(pos + 16) & 0xFFFFFFFFL;
+            // zip64 records may be written for the entry count alone, and then sit between 
+            // the central directory and the end record : look for them first
+            ZipCentralDirectory centralDirectory = locateZip64(channel, eocdPosition, commentReachesEnd);
+            if(centralDirectory == null && offset != ZIP64_MARKER && length != ZIP64_MARKER
+                    && isCentralDirectory(channel, eocdPosition - length, length, offset, commentReachesEnd)) {
+                centralDirectory = new ZipCentralDirectory(eocdPosition - length, length);
+            }
+            if(centralDirectory != null) {
+                return centralDirectory;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * @param position position of the central directory, right before the end record
+     * @param recordedOffset central directory offset held by the end record, smaller than 
+     *                       its position when data has been prepended to the archive
+     * @param commentReachesEnd whether the end record comment reaches the end of the file
+     * @return true if the given range holds a central directory, starting with a file 
+     * header unless it is empty.  If the comment doesn't reach the end of the file, the 
+     * first entry must also be found where the central directory implies.
+     */
+    private static boolean isCentralDirectory(FileChannel channel, long position, long length, 
+            long recordedOffset, boolean commentReachesEnd) throws IOException {
+        long prepended = position - recordedOffset;
+        if(position < 0 || length < 0 || prepended < 0) {
+            return false;
+        }
+        if(length == 0) {
+            return commentReachesEnd;
+        }
+        if(length < CEN_LENGTH || readFully(channel, position, 4).getInt(0) != CEN_SIGNATURE) {
+            return false;
+        }
+        return commentReachesEnd || readFully(channel, prepended, 4).getInt(0) == LOC_SIGNATURE;
+    }
+    
+    /**
+     * Reads the central directory location from the zip64 end record
+     * 
+     * @param eocdPosition position of the regular end of central directory record
+     * @param commentReachesEnd whether the end record comment reaches the end of the file
+     */
+    private static ZipCentralDirectory locateZip64(FileChannel channel, long eocdPosition, 
+            boolean commentReachesEnd) throws IOException {
+        long locatorPosition = eocdPosition - ZIP64_LOCATOR_LENGTH;
+        if(locatorPosition < ZIP64_EOCD_LENGTH) {
+            return null;
+        }
+        ByteBuffer locator = readFully(channel, locatorPosition, ZIP64_LOCATOR_LENGTH);
+        if(locator.getInt(0) != ZIP64_LOCATOR_SIGNATURE) {
+            return null;
+        }
+        // the recorded position is off when data has been prepended : the record is then 
+        // looked for right before the locator
+        long recordPosition = locator.getLong(8);
+        if(!isZip64Record(channel, recordPosition, locatorPosition)) {
+            recordPosition = locatorPosition - ZIP64_EOCD_LENGTH;
+            if(!isZip64Record(channel, recordPosition, locatorPosition)) {
+                return null;
+            }
+        }
+        ByteBuffer record = readFully(channel, recordPosition, ZIP64_EOCD_LENGTH);
+        long length = record.getLong(40);
+        long offset = record.getLong(48);
+        if(!isCentralDirectory(channel, recordPosition - length, length, offset, commentReachesEnd)) {
+            return null;
+        }
+        return new ZipCentralDirectory(recordPosition - length, length);
+    }
+    
+    /**
+     * @return true if a zip64 end record starts at the given position, before the locator
+     */
+    private static boolean isZip64Record(FileChannel channel, long position, long locatorPosition) 
+            throws IOException {
+        return position >= 0 && position + ZIP64_EOCD_LENGTH <= locatorPosition 
+            && readFully(channel, position, 4).getInt(0) == ZIP64_EOCD_SIGNATURE;
+    }
+    
+    /**
+     * Reads the whole central directory
+     * 
+     * @param channel channel on the archive this central directory was located in
+     * @return a little endian buffer holding the central directory
+     * @throws IOException if the archive can't be read
+     */
+    public ByteBuffer read(FileChannel channel) throws IOException {
+        if(_length > Integer.MAX_VALUE) {
+            throw new IOException("Central directory too large");
+        }
+        return readFully(channel, _offset, (int)_length);
+    }
+    
+    /**
+     * Reads the names of the archive entries from the central directory
+     * 
+     * @param channel channel on the archive this central directory was located in
+     * @return the entry names, in central directory order
+     * @throws IOException if the archive can't be read or the central directory is corrupted
+     */
+    public List<String> readEntryNames(FileChannel channel) throws IOException {
+        ByteBuffer cen = read(channel);
+        List<String> names = new ArrayList<String>();
+        int pos = 0;
+        while(pos + CEN_LENGTH <= cen.limit() && cen.getInt(pos) == CEN_SIGNATURE) {
+            int nameLength = cen.getShort(pos + 28) & 0xFFFF;
+            int extraLength = cen.getShort(pos + 30) & 0xFFFF;
+            int commentLength = cen.getShort(pos + 32) & 0xFFFF;
+            if(pos + CEN_LENGTH + nameLength > cen.limit()) {
+                throw new IOException("Corrupted central directory");
+            }
+            byte[] name = new byte[nameLength];
+            cen.position(pos + CEN_LENGTH);
+            cen.get(name);
+            names.add(new String(name, NAME_CHARSET));
+            pos += CEN_LENGTH + nameLength + extraLength + commentLength;
+        }
+        return names;
+    }
+    
+    /**
+     * Reads length bytes at the given position of the channel
+     * 
+     * @return a little endian heap buffer holding the bytes
+     */
+    static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+    
+    /**
+     * @return position of the central directory in the file, prepended data included
+     */
+    public long getOffset() {
+        return _offset;
+    }
+    
+    /**
+     * @return length of the central directory in bytes
+     */
+    public long getLength() {
+        return _length;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer.api;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Identifies a DirectoryContainer instance : the project referencing it and its path.
+ * 
+ * @author Frederic Camblor
+ */
+public final class ContainerOwner {
+    
+    // name of the project referencing the container
+    private final String _projectName;
+    // path of the container in the project classpath
+    private final IPath _containerPath;
+    
+    /**
+     * @param projectName name of the project referencing the container
+     * @param containerPath path of the container in the project classpath
+     */
+    public ContainerOwner(String projectName, IPath containerPath) {
+        _projectName = projectName;
+        _containerPath = containerPath;
+    }
+    
+    /**
+     * @return name of the project referencing the container
+     */
+    public String getProjectName() {
+        return _projectName;
+    }
+    
+    /**
+     * @return the project referencing the container
+     */
+    public IProject getProject() {
+        return ResourcesPlugin.getWorkspace().getRoot().getProject(_projectName);
+    }
+    
+    /**
+     * @return path of the container in the project classpath
+     */
+    public IPath getContainerPath() {
+        return _containerPath;
+    }
+    
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof ContainerOwner)) {
+            return false;
+        }
+        ContainerOwner other = (ContainerOwner)obj;
+        return _projectName.equals(other._projectName) && _containerPath.equals(other._containerPath);
+    }
+    
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return 31 * _projectName.hashCode() + _containerPath.hashCode();
+    }
+    
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return _projectName + " : " + _containerPath;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer.api;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * Finds the source and javadoc archives of a library.  Implementations are contributed 
+ * through the com.googlecode.eclipse.plugin.directorycpcontainer.attachmentResolvers 
+ * extension point and are asked in priority order until one of them answers.
+ * 
+ * Resolvers are called from the directory scan threads, possibly concurrently, for every 
+ * library of every container : they must be thread safe and should answer from memory 
+ * rather than probing the file system for each library.
+ * 
+ * @author Frederic Camblor
+ */
+public interface IAttachmentResolver {
+    
+    /**
+     * @param lib a library of a container
+     * @param exts the container extensions, lower case
+     * @return absolute path of the source archive of the library, null if unknown
+     */
+    String resolveSource(File lib, Set<String> exts);
+    
+    /**
+     * @param lib a library of a container
+     * @param exts the container extensions, lower case
+     * @return absolute path of the javadoc archive of the library, null if unknown
+     */
+    String resolveJavadoc(File lib, Set<String> exts);
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 1998, Regents of the University of California
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the University of California, Berkeley nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. * 
+ */
+package com.googlecode.eclipse.plugin.directorycpcontainer.api;
+
+import java.io.File;
+
+import org.eclipse.core.resources.IProject;
+
+/**
+ * Workspace-wide reverse index from archive files to the DirectoryContainers supplying 
+ * them.  It is kept current as containers publish their snapshots, and is registered 
+ * as an OSGi service under this interface name so other plug-ins can answer "which 
+ * container supplies this file ?" without walking every project classpath.
+ * 
+ * Only containers that have been resolved at least once are known to the index.
+ * 
+ * @author Frederic Camblor
+ */
+public interface IContainerIndex {
+    
+    /**
+     * @param file a library, source or javadoc archive
+     * @return the containers supplying the file, empty if none does
+     */
+    ContainerOwner[] getOwners(File file);
+    
+    /**
+     * @param project a project
+     * @param file a library, source or javadoc archive
+     * @return true if a DirectoryContainer of the given project supplies the file
+     */
+    boolean isContained(IProject project, File file);
+}